@@ -6,8 +6,8 @@ import { BrowserRouter as Router, Routes, Route, Navigate} from 'react-router-do
 // import { Switch, Route, Redirect } from 'react-router-dom'
 import React, { useState, useEffect } from 'react';
 import Login from './components/Login';
-import { Toaster } from 'react-hot-toast';
-import { host } from './components/Global'
+import { Toaster, toast } from 'react-hot-toast';
+import { host, wsHost } from './components/Global'
 import axios from 'axios';
 function App() {
   const [isAuthenticated, setIsAuthenticated] = useState(false);
@@ -18,6 +18,8 @@ function App() {
     wordId: -1
   });
   const [isDarkMode, setIsDarkMode] = useState(false);
+  // Le prime posizioni della classifica, aggiornate dal server tramite WebSocket
+  const [ranking, setRanking] = useState([]);
   const setAuth = (boolean) => {
     setIsAuthenticated(boolean)
     if (!boolean) {
@@ -59,6 +61,20 @@ function App() {
     isAuth();
   }, [])
 
+  // Finché l'utente è autenticato il server invia sul WebSocket i cambiamenti della classifica e le partite condivise,
+  // che il client CLI riceve invece tramite RMI e multicast
+  useEffect(() => {
+    if (!isAuthenticated || user.token === '') return;
+    const socket = new WebSocket(`${wsHost}/ws?username=${encodeURIComponent(user.username)}&token=${encodeURIComponent(user.token)}`);
+    socket.onmessage = function(event) {
+      const message = JSON.parse(event.data);
+      if (message.type === 'ranking') setRanking(message.data.ranking);
+      else if (message.type === 'share' && message.data.username !== user.username)
+        toast(`${message.data.username} ha condiviso una partita: ${message.data.won ? 'vinta' : 'persa'}`, {icon : '📣'});
+    };
+    return () => socket.close();
+  }, [isAuthenticated, user.username, user.token])
+
   return (
     <Router>
       <div className='flex flex-row justify-center'>
@@ -67,7 +83,7 @@ function App() {
         {/* <Login setAuth={setAuth}></Login> */}
         <Routes>
           <Route exact path='/' element={!isAuthenticated ? (<Login setAuth={setAuth} setUsername={setUser} />) : (<Home user={user} setUser={setUser} isPlaying={isPlaying} setIsPlaying={setIsPlaying} setAuth={setAuth} darkMode={isDarkMode}/>)} />
-          <Route exact path='/ranking' element={!isAuthenticated ? (<Login setAuth={setAuth} setusername={setUser}/>) : (<Ranking user={user} setAuth={setAuth} />)} />
+          <Route exact path='/ranking' element={!isAuthenticated ? (<Login setAuth={setAuth} setusername={setUser}/>) : (<Ranking ranking={ranking} />)} />
           <Route exact path='/login' element={!isAuthenticated ? (<Login setAuth={setAuth} setusername={setUser}/>) : (<Navigate to='/' />)} />
           {/* <Route exact path='/insert' element={!isAuthenticated ? (<Login setAuth={setAuth} setusername={setUser}/>) : (<InsertModal/>)} /> */}
         </Routes>
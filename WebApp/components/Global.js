@@ -1 +1,3 @@
-export let host = "http://localhost:6789";
\ No newline at end of file
+export let host = "http://localhost:6789";
+// Stesso server, raggiunto con il protocollo WebSocket
+export let wsHost = host.replace(/^http/, "ws");
\ No newline at end of file
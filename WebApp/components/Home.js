@@ -16,6 +16,8 @@ function Home({user, setUser, isPlaying, setIsPlaying, setAuth, isDarkMode}) {
 		guessDistribution: []
 	});
 	const [loading, setLoading] = useState(false);
+	// Istante in cui verrà estratta la prossima parola, ricevuto con gli eventi del server
+	const [nextWordAt, setNextWordAt] = useState(-1);
   
   const getData = () => {
 		axios.get(`${host}/sendMeStatistics?username=${user.username}`).then(
@@ -30,38 +32,31 @@ function Home({user, setUser, isPlaying, setIsPlaying, setAuth, isDarkMode}) {
 	  
   }
 
-  const routine = () => {
-	isUserPlaying();
-	getData();
+  const setGameStatus = (status) => {
+	status.isPlaying === true ? setIsPlaying(true) : setIsPlaying(false);
+	setUser({username: user.username, token: user.token, wordId: status.wordId})
   }
 
-
-  const isUserPlaying = () => { 
-	axios.get(`${host}/getGameStatus?username=${user.username}`).then(
-		function(response){
-			response.data.isPlaying === true ? setIsPlaying(true) : setIsPlaying(false);
-			// if (response.data.isPlaying === true){
-			  setUser({username: user.username, token: user.token, wordId: response.data.wordId})
-			// } 
-			if (response.status === 401) {
-				setAuth(false);
-			}
-			
-		}).catch(function(error){
-			if (error.response.status === 401) {
-				setAuth(false);
-			}
-		})
-	}
-
-	
-
+  // Lo stato della partita e il timer arrivano dal server con i Server-Sent Events, invece di interrogarlo ogni 5 secondi.
+  // EventSource non può impostare l'header Authorization, quindi il token è passato nella query
   useEffect(() => {
 	getData();
-	const updateGameStatus = setInterval(() => {
-		routine();
-	}, 5000)
-	return () => clearInterval(updateGameStatus);
+	const events = new EventSource(`${host}/events?username=${encodeURIComponent(user.username)}&token=${encodeURIComponent(user.token)}`);
+	events.addEventListener('word', function(event) {
+		// Nuova parola estratta: la partita in corso è terminata
+		setNextWordAt(Date.now() + JSON.parse(event.data).time);
+		setGameStatus({isPlaying: false, wordId: -1});
+		getData();
+	});
+	events.addEventListener('game', function(event) {
+		setGameStatus(JSON.parse(event.data));
+		getData();
+	});
+	events.onerror = function() {
+		// Dopo un errore il browser si riconnette da solo, a meno che il server abbia rifiutato il token
+		if (events.readyState === EventSource.CLOSED) setAuth(false);
+	};
+	return () => events.close();
 	// eslint-disable-next-line react-hooks/exhaustive-deps
   },[])
  
@@ -97,7 +92,7 @@ function Home({user, setUser, isPlaying, setIsPlaying, setAuth, isDarkMode}) {
   return (
 	<>
 	<div className='flex flex-col min-h-screen justify-center'>
-	<Navbar username={user.username} token={user.token} gamesPlayed={data.gamesPlayed} gamesWonPct={data.gamesWonPct} lastStreak={data.lastStreak} maxStreak={data.maxStreak} currentWordId={user.wordId}/>
+	<Navbar username={user.username} gamesPlayed={data.gamesPlayed} gamesWonPct={data.gamesWonPct} lastStreak={data.lastStreak} maxStreak={data.maxStreak} currentWordId={user.wordId} nextWordAt={nextWordAt}/>
 	{loading ? <BounceLoader color={"#0ea5e9"} className='flex ml-[120px] mb-10 border-cyan-400'></BounceLoader> : <div></div>}
 	{!isPlaying ? <button onClick={startGame} className='relative ml-20 pl-5 pr-5 pt-3 pb-3 rounded-xl bg-sky-300 hover:bg-sky-400 dark:text-white dark:bg-sky-800  hover:dark:bg-sky-900 hover:text-white'>Inizia una partita!</button> 
 				: <Game username={user.username} token={user.token} wordId={user.wordId} setAuth={setAuth} setLoading={setLoading}></Game>}
@@ -117,7 +112,7 @@ function msToTime(s) {
 	return mins.toLocaleString('it-IT', {minimumIntegerDigits:2, useGrouping: false}) + ':' + secs.toLocaleString('it-IT', {minimumIntegerDigits:2, useGrouping: false})
   }
 
-const Navbar = ({username, token, gamesPlayed, gamesWonPct, lastStreak, maxStreak, currentWordId}) => {
+const Navbar = ({username, gamesPlayed, gamesWonPct, lastStreak, maxStreak, currentWordId, nextWordAt}) => {
 	return (
 		<>
 		<div className="fixed top-0 left-0 h-20 w-screen justify-center gap-7 items-center
@@ -129,40 +124,25 @@ const Navbar = ({username, token, gamesPlayed, gamesWonPct, lastStreak, maxStrea
 			<span className='navbar-labels'>Ultima streak: <span className='navbar-labels-highlight'>{lastStreak}</span></span>
 			<span className='navbar-labels'>Streak più lunga: <span className='navbar-labels-highlight'>{maxStreak}</span></span>
 			<span className='navbar-labels'>Parola numero: <span className='navbar-labels-highlight'>{currentWordId === -1 ? "None" : currentWordId}</span></span>
-			<span className='navbar-labels'>Timer: <span className='navbar-labels-highlight'><Timer username={username} token={token}/></span></span>
+			<span className='navbar-labels'>Timer: <span className='navbar-labels-highlight'><Timer nextWordAt={nextWordAt}/></span></span>
 		</div>
 		</>
 	)
 }
 
-const Timer = ({username, token}) => {
+const Timer = ({nextWordAt}) => {
 	const[timer, setTimer] = useState(-1);
-	const syncWordTime = () => { 
-		axios.defaults.headers.common['Authorization'] = 'Bearer ' + token
-		axios.get(`${host}/wordTimer?username=${username}`).then(
-			function(response){
-				setTimer(response.data.time);
-			}).catch(function(error){
-				
-			});
-		console.log(`${host}/wordTimer?username=${username}&token=${token}`);
-	}
 
 	useEffect(() => {
-		// syncWordTime();
+		// Il tempo rimanente è calcolato localmente, il server invia l'istante di estrazione solo quando cambia
 		const updateTimer = setInterval(() => {
-			if (timer - 1000 >= 0) setTimer(timer - 1000);
-			else setTimer(0)
-			const now = new Date();
-			if (now.getSeconds() % 10 === 0 || timer < 0) {
-				syncWordTime();
-			}
+			if (nextWordAt >= 0) setTimer(Math.max(0, nextWordAt - Date.now()));
 		}, 1000);
 		return () => clearInterval(updateTimer);
-	  }, [timer])
+	  }, [nextWordAt])
     return (
         <>
-           <span>{msToTime(timer)}</span>
+           <span>{timer < 0 ? "--:--" : msToTime(timer)}</span>
         </>
     )
 }
@@ -1,29 +1,10 @@
-import { useEffect, useState } from "react";
-import axios from "axios";
-import { host } from "./Global";
-
-const Ranking = ({user, setAuth}) => {
-	const [ranking, setRanking] = useState([]);
-	useEffect(() => {  
-		axios.get(`${host}/showMeRanking?username=${user.username}`).then(
-			function(response){
-				setRanking(response.data.ranking);
-				console.log(response.data.ranking);
-				if (response.status === 401) {
-					setAuth(false);
-				}
-				
-			}).catch(function(error){
-				if (error.response.status === 401) {
-					setAuth(false);
-				}
-			})
-	}, []);
+const Ranking = ({ranking}) => {
+	// La classifica non viene più richiesta a showMeRanking: arriva, e si aggiorna, con il WebSocket aperto da App
 	return (
 	   <div className="flex flex-col w-screen h-screen">
                 <div className='h-screen flex flex-row items-center justify-center'>
 				    <div className='flex flex-col items-center justify-evenly w-full max-w-2xl bg-gray-100 dark:bg-gray-800 rounded-lg shadow-xl py-10 px-10'>
-					<h1 className="text-black dark:text-white font-mono text-[2em] mb-8">🏅 Classifica Top 5 🏅</h1>
+					<h1 className="text-black dark:text-white font-mono text-[2em] mb-8">🏅 Classifica Top 3 🏅</h1>
 					<Names users={ranking}/>
 
                         {/* <div className="flex flex-col gap-3 justify-evenly items-center max-w-full w-full" >
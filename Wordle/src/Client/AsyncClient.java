@@ -0,0 +1,232 @@
+package Client;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Non-blocking client: requests return a CompletableFuture and are pipelined on a small pool of connections,
+ * served by a single I/O thread with a Selector. The server answers the requests of a connection in order,
+ * so the responses complete the pending futures of that connection in FIFO order.
+ * A new request goes to the connection with the fewest pending requests: requests on different connections
+ * are not ordered, a request sent after the completion of another one is.
+ * The futures are completed on the I/O thread, so the dependent actions that block must use the async methods
+ * of CompletableFuture.
+ */
+public class AsyncClient implements AutoCloseable {
+	private final Requests protocol;
+	private final Selector selector;
+	private final Pipeline[] pipelines;
+	private volatile boolean closed = false;
+
+	/**
+	 * A connection with the requests not yet written and the futures of the requests not yet answered
+	 */
+	private static class Pipeline {
+		private final SocketChannel channel;
+		private final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+		private final ArrayDeque<CompletableFuture<HashMap<String, Object>>> pending = new ArrayDeque<>();
+		private ByteBuffer buffer = ByteBuffer.allocate(16 * 1024);
+		private IOException failure = null;
+
+		private Pipeline(SocketChannel channel) {
+			this.channel = channel;
+		}
+	}
+
+	/**
+	 * @param protocol encodes the requests and decodes the responses, HttpRequests or BinaryRequests
+	 * @param connections the size of the pool, at least one connection is opened
+	 * @throws IOException if the server is not reachable
+	 */
+	public AsyncClient(InetSocketAddress address, Requests protocol, int connections) throws IOException {
+		this.protocol = protocol;
+		this.selector = Selector.open();
+		this.pipelines = new Pipeline[Math.max(connections, 1)];
+		try {
+			for (int i = 0; i < pipelines.length; i++) {
+				SocketChannel channel = SocketChannel.open(address);
+				channel.configureBlocking(false);
+				pipelines[i] = new Pipeline(channel);
+				channel.register(selector, SelectionKey.OP_READ, pipelines[i]);
+			}
+		} catch (IOException e) {
+			for (Pipeline pipeline : pipelines)
+				if (pipeline != null) pipeline.channel.close();
+			selector.close();
+			throw e;
+		}
+		Thread ioThread = new Thread(this::run, "async-client");
+		ioThread.setDaemon(true);
+		ioThread.start();
+	}
+
+	/**
+	 * @see Requests#get(SocketChannel, String, String, String)
+	 */
+	public CompletableFuture<HashMap<String, Object>> get(String url, String queryString, String token) {
+		return send(false, url, queryString, "", token);
+	}
+
+	/**
+	 * @see Requests#post(SocketChannel, String, String, String, String)
+	 */
+	public CompletableFuture<HashMap<String, Object>> post(String url, String queryString, String body, String token) {
+		return send(true, url, queryString, body, token);
+	}
+
+	/**
+	 * Waits for the response, like the blocking Requests do
+	 * @return the response or null if it is not valid
+	 * @throws IOException if the server is not reachable
+	 */
+	public static HashMap<String, Object> await(CompletableFuture<HashMap<String, Object>> response) throws IOException {
+		try {
+			return response.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException io) throw io;
+			throw new IOException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		}
+	}
+
+	private CompletableFuture<HashMap<String, Object>> send(boolean post, String url, String queryString, String body, String token) {
+		ByteBuffer request;
+		try {
+			request = protocol.encode(post, url, queryString, body, token);
+		} catch (IOException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+		if (request == null) return CompletableFuture.completedFuture(null);
+		CompletableFuture<HashMap<String, Object>> response = new CompletableFuture<>();
+		Pipeline pipeline = null;
+		synchronized (this) {
+			for (Pipeline candidate : pipelines)
+				if (candidate.failure == null && (pipeline == null || candidate.pending.size() < pipeline.pending.size())) pipeline = candidate;
+			if (closed) return CompletableFuture.failedFuture(new IOException("Client closed"));
+			if (pipeline == null) return CompletableFuture.failedFuture(new IOException("Broken pipe - server unreachable"));
+			// Both queues are updated together, so the order of the futures is the order of the writes
+			pipeline.outbound.add(request);
+			pipeline.pending.add(response);
+		}
+		selector.wakeup();
+		return response;
+	}
+
+	private void run() {
+		while (!closed) {
+			try {
+				synchronized (this) {
+					for (Pipeline pipeline : pipelines) {
+						SelectionKey key = pipeline.channel.keyFor(selector);
+						if (key != null && key.isValid())
+							key.interestOps(pipeline.outbound.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+					}
+				}
+				selector.select();
+				for (SelectionKey key : selector.selectedKeys()) {
+					Pipeline pipeline = (Pipeline) key.attachment();
+					try {
+						if (key.isValid() && key.isWritable()) write(pipeline);
+						if (key.isValid() && key.isReadable()) read(pipeline);
+					} catch (IOException e) {
+						fail(pipeline, e);
+					}
+				}
+				selector.selectedKeys().clear();
+			} catch (IOException e) {
+				closed = true;
+			}
+		}
+		// The connections are closed here, so that they are never closed while being selected
+		for (Pipeline pipeline : pipelines) fail(pipeline, new IOException("Client closed"));
+		try {
+			selector.close();
+		} catch (IOException ignored) {}
+	}
+
+	private void write(Pipeline pipeline) throws IOException {
+		while (true) {
+			ByteBuffer request;
+			synchronized (this) {
+				request = pipeline.outbound.peek();
+			}
+			if (request == null) return;
+			pipeline.channel.write(request);
+			if (request.hasRemaining()) return;
+			synchronized (this) {
+				pipeline.outbound.poll();
+			}
+		}
+	}
+
+	private void read(Pipeline pipeline) throws IOException {
+		if (!pipeline.buffer.hasRemaining()) {
+			if (pipeline.buffer.capacity() >= Requests.BUFFER_SIZE) throw new IOException("Response larger than " + Requests.BUFFER_SIZE + " bytes");
+			ByteBuffer bigger = ByteBuffer.allocate(Math.min(pipeline.buffer.capacity() * 2, Requests.BUFFER_SIZE));
+			pipeline.buffer = bigger.put(pipeline.buffer.flip());
+		}
+		if (pipeline.channel.read(pipeline.buffer) < 0) throw new IOException("Broken pipe - server unreachable");
+		int end;
+		while ((end = protocol.responseEnd(pipeline.buffer)) >= 0) {
+			HashMap<String, Object> response = protocol.decode(pipeline.buffer, end);
+			pipeline.buffer.flip().position(end);
+			pipeline.buffer.compact();
+			CompletableFuture<HashMap<String, Object>> future;
+			synchronized (this) {
+				future = pipeline.pending.poll();
+			}
+			// A response nobody asked for means the connection is out of sync
+			if (future == null) throw new IOException("Response not valid");
+			future.complete(response);
+		}
+	}
+
+	/**
+	 * Closes the connection and fails its pending requests, the other connections of the pool keep working
+	 */
+	private void fail(Pipeline pipeline, IOException cause) {
+		ArrayDeque<CompletableFuture<HashMap<String, Object>>> failed;
+		synchronized (this) {
+			if (pipeline.failure != null) return;
+			pipeline.failure = cause;
+			pipeline.outbound.clear();
+			failed = new ArrayDeque<>(pipeline.pending);
+			pipeline.pending.clear();
+		}
+		try {
+			pipeline.channel.close();
+		} catch (IOException ignored) {}
+		for (CompletableFuture<HashMap<String, Object>> future : failed) future.completeExceptionally(cause);
+	}
+
+	/**
+	 * @return true if at least one connection of the pool is still open
+	 */
+	public synchronized boolean isConnected() {
+		if (closed) return false;
+		for (Pipeline pipeline : pipelines)
+			if (pipeline.failure == null) return true;
+		return false;
+	}
+
+	/**
+	 * Closes all the connections, the pending requests fail with an IOException
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			closed = true;
+		}
+		selector.wakeup();
+	}
+}
@@ -0,0 +1,124 @@
+package Client;
+
+import CommonUtils.BinaryProtocol;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+/**
+ * Requests sent with the binary protocol of the server, on its binaryPort. The url only selects the operation,
+ * so the rest of the client is the same for both protocols.
+ * Requests are encoded in a reused buffer and responses are read into the buffer of the channel.
+ */
+public class BinaryRequests implements Requests {
+	private static final int LENGTH_SIZE = Integer.BYTES;
+	private static final ObjectMapper mapper = new ObjectMapper();
+	private final ByteBuffer request = ByteBuffer.allocate(BinaryProtocol.MAX_FRAME_SIZE);
+	private final ChannelBuffers buffers = new ChannelBuffers();
+
+	@Override
+	public HashMap<String, Object> get(SocketChannel socket, String url, String queryString, String token) throws IOException {
+		return send(socket, encode(false, url, queryString, "", token));
+	}
+
+	@Override
+	public HashMap<String, Object> post(SocketChannel socket, String url, String queryString, String body, String token) throws IOException {
+		return send(socket, encode(true, url, queryString, body, token));
+	}
+
+	private HashMap<String, Object> send(SocketChannel socket, ByteBuffer request) throws IOException {
+		return request == null ? null : buffers.exchange(socket, request, this);
+	}
+
+	/**
+	 * The method is implied by the operation, so post is ignored
+	 */
+	@Override
+	public synchronized ByteBuffer encode(boolean post, String url, String queryString, String body, String token) throws IOException {
+		String action = new URL(url).getPath().substring(1);
+		BinaryProtocol.Operation operation = BinaryProtocol.Operation.ofAction(action);
+		if (operation == null) throw new IOException("Operation " + action + " not supported by the binary protocol");
+		HashMap<String, String> params = new HashMap<>();
+		parseParams(queryString, params);
+		parseParams(body, params);
+		if (!token.equals("")) params.put("token", token);
+
+		request.clear().position(LENGTH_SIZE);
+		request.put((byte) operation.opcode);
+		try {
+			for (BinaryProtocol.Field field : operation.fields) {
+				String value = params.getOrDefault(field.name(), "");
+				switch (field.type()) {
+					case INT -> BinaryProtocol.put(request, field.type(), Integer.parseInt(value));
+					// Rejected rather than rewritten into a different word
+					case WORD -> {
+						if (!BinaryProtocol.isWord(value)) return null;
+						BinaryProtocol.put(request, field.type(), value);
+					}
+					default -> BinaryProtocol.put(request, field.type(), value);
+				}
+			}
+		} catch (NumberFormatException e) {
+			return null;
+		}
+		request.putInt(0, request.position() - LENGTH_SIZE).flip();
+		// The request buffer is reused by the next call, the frame may still be queued by AsyncClient
+		return ByteBuffer.allocate(request.remaining()).put(request).flip();
+	}
+
+	@Override
+	public int responseEnd(ByteBuffer buffer) throws IOException {
+		if (buffer.position() < LENGTH_SIZE) return -1;
+		int frameLength = buffer.getInt(0);
+		if (frameLength < 3 || frameLength > BinaryProtocol.MAX_FRAME_SIZE) throw new IOException("Response not valid");
+		int frameEnd = LENGTH_SIZE + frameLength;
+		return buffer.position() >= frameEnd ? frameEnd : -1;
+	}
+
+	/**
+	 * Builds the same map the JSON body would produce: the null fields are not present
+	 */
+	@Override
+	public HashMap<String, Object> decode(ByteBuffer buffer, int end) {
+		ByteBuffer frame = buffer.duplicate().limit(end).position(LENGTH_SIZE);
+		try {
+			int status = frame.getShort() & 0xFFFF;
+			int bodyIndex = frame.get() & 0xFF;
+			BinaryProtocol.Body[] bodies = BinaryProtocol.Body.values();
+			if (bodyIndex >= bodies.length) return null;
+			BinaryProtocol.Body body = bodies[bodyIndex];
+			HashMap<String, Object> response;
+			if (body == BinaryProtocol.Body.JSON) {
+				@SuppressWarnings("unchecked")
+				HashMap<String, Object> json = mapper.readValue(BinaryProtocol.getString(frame), HashMap.class);
+				response = json;
+			} else {
+				response = new HashMap<>();
+				for (BinaryProtocol.Field field : body.fields) {
+					Object value = BinaryProtocol.get(frame, field.type());
+					if (value != null) response.put(field.name(), value);
+				}
+			}
+			response.put("status", status);
+			return response;
+		} catch (BufferUnderflowException | IllegalArgumentException | IOException e) {
+			return null;
+		}
+	}
+
+	private static void parseParams(String encoded, HashMap<String, String> params) {
+		if (encoded == null || encoded.isEmpty()) return;
+		for (String pair : encoded.split("&")) {
+			int equals = pair.indexOf('=');
+			if (equals > 0)
+				params.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8), URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+		}
+	}
+}
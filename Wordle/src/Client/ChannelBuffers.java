@@ -0,0 +1,66 @@
+package Client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * One buffer per SocketChannel, reused by all the requests sent on it. A buffer grows when a response does not
+ * fit, up to Requests.BUFFER_SIZE, and is dropped together with its channel after a reconnection.
+ */
+class ChannelBuffers {
+	private static final int INITIAL_SIZE = 16 * 1024;
+	private final Map<SocketChannel, ByteBuffer> buffers = new WeakHashMap<>();
+
+	/**
+	 * @return the buffer of the channel, its position is the number of bytes read beyond the last response
+	 */
+	synchronized ByteBuffer of(SocketChannel socket) {
+		return buffers.computeIfAbsent(socket, k -> ByteBuffer.allocate(INITIAL_SIZE));
+	}
+
+	/**
+	 * Replaces the buffer of the channel with one of at least minCapacity bytes, keeping its content
+	 * @return the new buffer, or the current one if it is already large enough
+	 * @throws IOException if minCapacity exceeds Requests.BUFFER_SIZE
+	 */
+	synchronized ByteBuffer grow(SocketChannel socket, int minCapacity) throws IOException {
+		ByteBuffer current = of(socket);
+		if (current.capacity() >= minCapacity) return current;
+		if (minCapacity > Requests.BUFFER_SIZE) throw new IOException("Response larger than " + Requests.BUFFER_SIZE + " bytes");
+		ByteBuffer bigger = ByteBuffer.allocate(Math.min(Math.max(current.capacity() * 2, minCapacity), Requests.BUFFER_SIZE));
+		current.flip();
+		bigger.put(current);
+		buffers.put(socket, bigger);
+		return bigger;
+	}
+
+	/**
+	 * Writes the request and reads its response, the bytes after the response stay in the buffer for the next one
+	 * @param request the request encoded by protocol
+	 * @return the response decoded by protocol or null if it is not valid
+	 * @throws IOException if the server is not reachable or the response cannot be read
+	 */
+	HashMap<String, Object> exchange(SocketChannel socket, ByteBuffer request, Requests protocol) throws IOException {
+		while (request.hasRemaining()) socket.write(request);
+		ByteBuffer buffer = of(socket);
+		int end;
+		try {
+			while ((end = protocol.responseEnd(buffer)) < 0) {
+				if (!buffer.hasRemaining()) buffer = grow(socket, buffer.capacity() + 1);
+				if (socket.read(buffer) < 0) throw new IOException("Broken pipe - server unreachable");
+			}
+		} catch (IOException e) {
+			// What is left in the buffer cannot be delimited anymore
+			buffer.clear();
+			throw e;
+		}
+		HashMap<String, Object> response = protocol.decode(buffer, end);
+		buffer.flip().position(end);
+		buffer.compact();
+		return response;
+	}
+}
@@ -6,7 +6,6 @@ import WordleRMI.*;
 import java.io.Console;
 import java.io.IOException;
 import java.net.*;
-import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
 import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
@@ -15,6 +14,7 @@ import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 public class Client {
 	private RemoteRegistrationInterface remoteRegistrationObject = null;
@@ -23,7 +23,8 @@ public class Client {
 	private RankingListenerInterface rankingListenerStub;
 	private final UserMessages msg;
 	private final ClientConfig config;
-	private SocketChannel socketChannel;
+	private AsyncClient connection;
+	private final Requests requests;
 	private final Session session;
 	private MulticastSocket multicastSocket = null;
 	private Thread multicastListener = null;
@@ -33,6 +34,7 @@ public class Client {
 		this.msg = new UserMessages(clientConfig.prettyPrint(), clientConfig.language());
 		this.session = new Session(clientConfig.networkInterface());
 		this.config = clientConfig;
+		this.requests = clientConfig.useBinaryProtocol() ? new BinaryRequests() : new HttpRequests();
 	}
 
 	private String getUserAndPass(Scanner scan, Console console) {
@@ -52,7 +54,7 @@ public class Client {
 	private boolean verifyToken(Scanner scan) throws IOException {
 		HashMap<String, Object> response = null;
 		// If the client manages to reconnect to the server, it verifies the session token
-		response = Requests.get(socketChannel, String.format("http://%s:%d/verify", config.serverIp(), config.tcpPort()), String.format("username=%s", URLEncoder.encode(session.username(), StandardCharsets.UTF_8)), session.token());
+		response = AsyncClient.await(connection.get(String.format("http://%s:%d/verify", config.serverIp(), config.tcpPort()), String.format("username=%s", URLEncoder.encode(session.username(), StandardCharsets.UTF_8)), session.token()));
 
 		if (!validateResponse(response, new String[]{"status"})) {
 			PrettyPrinter.prettyPrintln(msg.message("response_not_valid"));
@@ -82,7 +84,7 @@ public class Client {
 				PrettyPrinter.prettyPrintln(msg.message("trying_to_reconnect"));
 				Thread.sleep(config.reconnectionTimeout());
 				connect(true);
-				if (socketChannel != null)
+				if (connection != null)
 					reconnected = true;
 			} catch (Exception e) {
 				error = e;
@@ -160,7 +162,8 @@ public class Client {
 	 */
 	private void connect(boolean reconnecting) throws IOException, NotBoundException {
 		try {
-			socketChannel = SocketChannel.open(new InetSocketAddress(config.serverIp(), config.tcpPort()));
+			int port = config.useBinaryProtocol() ? config.binaryPort() : config.tcpPort();
+			connection = new AsyncClient(new InetSocketAddress(config.serverIp(), port), requests, config.connections());
 			if (reconnecting) connectToRMIServices();
 		} catch (IOException e) {
 			if (!reconnecting) {
@@ -209,10 +212,8 @@ public class Client {
 			multicastListener = null;
 		}
 		session.resetSession();
-		try {
-			if (socketChannel.isConnected()) socketChannel.close();
-			socketChannel = null;
-		} catch (IOException ignored) {}
+		if (connection != null) connection.close();
+		connection = null;
 
 	}
 
@@ -221,10 +222,10 @@ public class Client {
 		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
 			try {
 				if (session.loggedIn()) {
-					Requests.post(socketChannel, String.format("http://%s:%d/logout", config.serverIp(), config.tcpPort()), "", String.format("username=%s", session.username()), session.token());
+					AsyncClient.await(connection.post(String.format("http://%s:%d/logout", config.serverIp(), config.tcpPort()), "", String.format("username=%s", session.username()), session.token()));
 					handleLogout();
 				}
-				if (socketChannel != null) socketChannel.close();
+				if (connection != null) connection.close();
 			} catch (IOException ignored) {}
 		}));
 		String password;
@@ -274,7 +275,7 @@ public class Client {
 							connect(false); // Init TCP connection and RMI ranking notification service
 						} catch (Exception ignored) {}
 						try {
-							HashMap<String, Object> response = Requests.post(socketChannel, String.format("http://%s:%d/login", config.serverIp(), config.tcpPort()), "", String.format("username=%s&password=%s", URLEncoder.encode(session.username(), StandardCharsets.UTF_8), password), "");
+							HashMap<String, Object> response = AsyncClient.await(connection.post(String.format("http://%s:%d/login", config.serverIp(), config.tcpPort()), "", String.format("username=%s&password=%s", URLEncoder.encode(session.username(), StandardCharsets.UTF_8), password), ""));
 							if (!validateResponse(response, new String[]{"status"})) {
 								PrettyPrinter.prettyPrintln(msg.message("response_not_valid"));
 								break;
@@ -331,8 +332,12 @@ public class Client {
 						}
 						clearScreen();
 						PrettyPrinter.prettyPrintln(msg.message("banner"));
+						// The queries of the refresh do not depend on each other, so they are sent together
+						CompletableFuture<HashMap<String, Object>> wordTimer = wordTimer();
+						CompletableFuture<HashMap<String, Object>> wordHistory = session.isPlaying() && System.currentTimeMillis() <= session.wordExpiration() ? wordHistory() : null;
+						CompletableFuture<HashMap<String, Object>> statistics = session.showStatistics() ? statistics() : null;
 						try {
-							getWordTimer(false);
+							getWordTimer(false, wordTimer);
 						} catch (IOException e) {
 							handleConnectionException(scan);
 							break;
@@ -354,7 +359,7 @@ public class Client {
 								continue;
 							} else {
 								try {
-									printWordHistory();
+									printWordHistory(wordHistory != null ? wordHistory : wordHistory());
 								} catch (IOException e) {
 									handleConnectionException(scan);
 									break;
@@ -363,7 +368,7 @@ public class Client {
 						}
 
 						if (session.showStatistics()) try {
-							printStatistics();
+							printStatistics(statistics != null ? statistics : statistics());
 						} catch (IOException e) {
 							handleConnectionException(scan);
 						}
@@ -403,7 +408,7 @@ public class Client {
 							// Play wordle
 							case 1 -> {
 								try {
-									HashMap<String, Object> response = Requests.post(socketChannel, String.format("http://%s:%d/playWordle", config.serverIp(), config.tcpPort()),"",  String.format("username=%s", session.username()), session.token());
+									HashMap<String, Object> response = AsyncClient.await(connection.post(String.format("http://%s:%d/playWordle", config.serverIp(), config.tcpPort()),"",  String.format("username=%s", session.username()), session.token()));
 									if (!validateResponse(response, new String[]{"status"})) {
 										PrettyPrinter.prettyPrintln(msg.message("response_not_valid"));
 										break;
@@ -470,7 +475,7 @@ public class Client {
 										PrettyPrinter.prettyPrint(msg.message("insert_word"));
 										word = scan.nextLine();
 									} while (word.isBlank() || word.length() != 10);
-									HashMap<String, Object> response = Requests.post(socketChannel, String.format("http://%s:%d/sendWord", config.serverIp(), config.tcpPort()), "", String.format("username=%s&word=%s&wordId=%d", session.username(), word, session.currentWordId()), session.token());
+									HashMap<String, Object> response = AsyncClient.await(connection.post(String.format("http://%s:%d/sendWord", config.serverIp(), config.tcpPort()), "", String.format("username=%s&word=%s&wordId=%d", session.username(), word, session.currentWordId()), session.token()));
 									if (!validateResponse(response, new String[]{"status"})) {
 										PrettyPrinter.prettyPrintln(msg.message("response_not_valid"));
 										break;
@@ -529,7 +534,7 @@ public class Client {
 							// Get ranking
 							case 3 -> {
 								try {
-									HashMap<String, Object> response = Requests.get(socketChannel, String.format("http://%s:%d/showMeRanking", config.serverIp(), config.tcpPort()), String.format("username=%s", session.username()), session.token());
+									HashMap<String, Object> response = AsyncClient.await(connection.get(String.format("http://%s:%d/showMeRanking", config.serverIp(), config.tcpPort()), String.format("username=%s", session.username()), session.token()));
 									if (!validateResponse(response, new String[]{"status", "ranking"})) {
 										PrettyPrinter.prettyPrintln(msg.message("response_not_valid"));
 										break;
@@ -564,7 +569,7 @@ public class Client {
 							// Logout
 							case 0 -> {
 								try {
-									HashMap<String, Object> response = Requests.post(socketChannel, String.format("http://%s:%d/logout", config.serverIp(), config.tcpPort()), "", String.format("username=%s", session.username()), session.token());
+									HashMap<String, Object> response = AsyncClient.await(connection.post(String.format("http://%s:%d/logout", config.serverIp(), config.tcpPort()), "", String.format("username=%s", session.username()), session.token()));
 									if (!validateResponse(response, new String[]{"status"})) {
 										PrettyPrinter.prettyPrintln(msg.message("response_not_valid"));
 										break;
@@ -610,7 +615,7 @@ public class Client {
 
 		switch (choice) {
 			case "s", "y" -> {
-				HashMap<String, Object> response = Requests.post(socketChannel, String.format("http://%s:%d/share", config.serverIp(), config.tcpPort()), "", String.format("username=%s&wordId=%s", session.username(), session.currentWordId()), session.token());
+				HashMap<String, Object> response = AsyncClient.await(connection.post(String.format("http://%s:%d/share", config.serverIp(), config.tcpPort()), "", String.format("username=%s&wordId=%s", session.username(), session.currentWordId()), session.token()));
 				if (!validateResponse(response, new String[]{"status"})) {
 					PrettyPrinter.prettyPrintln(msg.message("response_not_valid"));
 					break;
@@ -648,19 +653,39 @@ public class Client {
 	 *  @throws IOException if the host is not reachable
 	 */
 	public void getWordTimer(boolean setTimer) throws IOException {
+		getWordTimer(setTimer, wordTimer());
+	}
+
+	private void getWordTimer(boolean setTimer, CompletableFuture<HashMap<String, Object>> pending) throws IOException {
 		SimpleDateFormat time = new SimpleDateFormat("HH:mm:ss");
 		HashMap<String, Object> response;
 		if (!setTimer) PrettyPrinter.prettyPrintln(String.format(msg.message("user"), session.username()));
-		response = Requests.get(socketChannel, String.format("http://%s:%d/wordTimer", config.serverIp(), config.tcpPort()), String.format("username=%s", session.username()), session.token());
+		response = AsyncClient.await(pending);
 		if (validateResponse(response, new String[]{"status", "time"})) {
 			if (!setTimer) PrettyPrinter.prettyPrintln(String.format(msg.message("time"), time.format(new Date(System.currentTimeMillis() + (int) response.get("time")))));
 			if (setTimer) session.wordExpiration(System.currentTimeMillis() + (int) response.get("time"));
 		}
 	}
 
+	private CompletableFuture<HashMap<String, Object>> wordTimer() {
+		return connection.get(String.format("http://%s:%d/wordTimer", config.serverIp(), config.tcpPort()), String.format("username=%s", session.username()), session.token());
+	}
+
+	private CompletableFuture<HashMap<String, Object>> statistics() {
+		return connection.get(String.format("http://%s:%d/sendMeStatistics", config.serverIp(), config.tcpPort()), String.format("username=%s", session.username()), session.token());
+	}
+
+	private CompletableFuture<HashMap<String, Object>> wordHistory() {
+		return connection.get(String.format("http://%s:%d/getGameHistory", config.serverIp(), config.tcpPort()), String.format("username=%s&wordId=%d", session.username(), session.currentWordId()), session.token());
+	}
+
 	private void printStatistics() throws IOException {
+		printStatistics(statistics());
+	}
+
+	private void printStatistics(CompletableFuture<HashMap<String, Object>> pending) throws IOException {
 		HashMap<String, Object> response;
-		response = Requests.get(socketChannel, String.format("http://%s:%d/sendMeStatistics", config.serverIp(), config.tcpPort()), String.format("username=%s", session.username()), session.token());
+		response = AsyncClient.await(pending);
 		if (validateResponse(response, new String[]{"status"})) {
 			PrettyPrinter.prettyPrintln(String.format(msg.message("stats"),
 					(int) response.get("gamesPlayed"), ((double) response.get("gamesWonPct") * 100), '%', (int) response.get("lastStreak"), (int) response.get("maxStreak")));
@@ -680,9 +705,9 @@ public class Client {
 	 * Print a wordle-like table.
 	 * @throws IOException if the server is not reachable
 	 */
-	private void printWordHistory() throws IOException {
+	private void printWordHistory(CompletableFuture<HashMap<String, Object>> pending) throws IOException {
 		HashMap<String, Object> response = null;
-		response = Requests.get(socketChannel, String.format("http://%s:%d/getGameHistory", config.serverIp(), config.tcpPort()), String.format("username=%s&wordId=%d", session.username(), session.currentWordId()), session.token());
+		response = AsyncClient.await(pending);
 		if (validateResponse(response, new String[]{"status", "guesses", "hints"})){
 			String[] rawGuesses = ((String) response.get("guesses")).split(":");
 			String[] rawHints = ((String) response.get("hints")).split(":");
@@ -2,7 +2,8 @@ package Client;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
-public record ClientConfig(int tcpPort, int rmiPort, int maxRetries, int reconnectionTimeout, String networkInterface, String serverIp, String rmiRegistrationEndpoint, String rmiRankingEndpoint, String language, boolean prettyPrint) {
+public record ClientConfig(int tcpPort, int rmiPort, int maxRetries, int reconnectionTimeout, String networkInterface, String serverIp, String rmiRegistrationEndpoint, String rmiRankingEndpoint, String language, boolean prettyPrint,
+						   int binaryPort, boolean useBinaryProtocol, int connections) {
 	public ClientConfig(@JsonProperty(value = "tcpPort", required = true) int tcpPort,
 						@JsonProperty(value = "rmiPort", required = true) int rmiPort,
 						@JsonProperty(value = "maxRetries", required = true) int maxRetries,
@@ -12,7 +13,10 @@ public record ClientConfig(int tcpPort, int rmiPort, int maxRetries, int reconne
 						@JsonProperty(value = "rmiRegistrationEndpoint", required = true) String rmiRegistrationEndpoint,
 						@JsonProperty(value = "rmiRankingEndpoint", required = true) String rmiRankingEndpoint,
 						@JsonProperty(value = "language", required = true) String language,
-						@JsonProperty(value = "prettyPrint", required = true) boolean prettyPrint) {
+						@JsonProperty(value = "prettyPrint", required = true) boolean prettyPrint,
+						@JsonProperty(value = "binaryPort") int binaryPort,
+						@JsonProperty(value = "useBinaryProtocol") boolean useBinaryProtocol,
+						@JsonProperty(value = "connections") int connections) {
 		this.tcpPort = tcpPort;
 		this.rmiPort = rmiPort;
 		this.maxRetries = maxRetries;
@@ -23,6 +27,9 @@ public record ClientConfig(int tcpPort, int rmiPort, int maxRetries, int reconne
 		this.rmiRankingEndpoint = rmiRankingEndpoint;
 		this.language = language;
 		this.prettyPrint = prettyPrint;
+		this.binaryPort = binaryPort;
+		this.useBinaryProtocol = useBinaryProtocol && binaryPort > 0;
+		this.connections = Math.max(connections, 1);
 	}
 
 
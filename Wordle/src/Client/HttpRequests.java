@@ -0,0 +1,130 @@
+package Client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.*;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+/**
+ * Requests sent as HTTP/1.1, the responses are parsed from JSON.
+ * The responses are read into the buffer of the channel until Content-Length bytes of body have arrived,
+ * then the body is parsed in place, without copying it into a String.
+ */
+public class HttpRequests implements Requests {
+	private static final ObjectMapper mapper = new ObjectMapper();
+	private static final byte[] CONTENT_LENGTH = "content-length:".getBytes(StandardCharsets.US_ASCII);
+	private final ChannelBuffers buffers = new ChannelBuffers();
+
+	@Override
+	public HashMap<String, Object> get(SocketChannel socket, String url, String queryString, String token) throws IOException {
+		return buffers.exchange(socket, encode(false, url, queryString, "", token), this);
+	}
+
+	@Override
+	public HashMap<String, Object> post(SocketChannel socket, String url, String queryString, String body, String token) throws IOException {
+		return buffers.exchange(socket, encode(true, url, queryString, body, token), this);
+	}
+
+	@Override
+	public ByteBuffer encode(boolean post, String url, String queryString, String body, String token) throws IOException {
+		URL url1 = new URL(url);
+		String request;
+		if (!post) {
+			request = String.format("%s\r\n%s\r\n%s%s\r\n%s\r\n\r\n",
+					String.format("GET %s%s HTTP/1.1", url1.getPath(), !queryString.equals("") ? "?" + queryString : ""),
+					String.format("Host: %s", url1.getHost()),
+					!token.equals("") ? String.format("Authorization: %s\r\n", token) : "",
+					"User-Agent: Wordle Java Client",
+					"Accept: */*");
+		} else {
+			// The server frames the body using Content-Length, so nothing must follow it
+			request = String.format("%s\r\n%s\r\n%s\r\n%s%s\r\n%s\r\n\r\n%s",
+					String.format("POST %s%s HTTP/1.1", url1.getPath(), !queryString.equals("") ? "?" + queryString : ""),
+					String.format("Host: %s", url1.getHost()),
+					"User-Agent: Wordle Java Client",
+					!token.equals("") ? String.format("Authorization: %s\r\n", token) : "",
+					"Accept: */*",
+					String.format("Content-Length: %d", body.getBytes(StandardCharsets.UTF_8).length),
+					body);
+		}
+		return ByteBuffer.wrap(request.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * A response without Content-Length is taken as one without body, so it is not valid
+	 */
+	@Override
+	public int responseEnd(ByteBuffer buffer) throws IOException {
+		int headerEnd = indexOfHeaderEnd(buffer);
+		if (headerEnd < 0) return -1;
+		int responseEnd = headerEnd + 4 + Math.max(parseContentLength(buffer, headerEnd), 0);
+		if (responseEnd > BUFFER_SIZE) throw new IOException("Response larger than " + BUFFER_SIZE + " bytes");
+		return buffer.position() >= responseEnd ? responseEnd : -1;
+	}
+
+	@Override
+	public HashMap<String, Object> decode(ByteBuffer buffer, int end) {
+		int headerEnd = indexOfHeaderEnd(buffer);
+		int statusCode = parseStatus(buffer, headerEnd);
+		int bodyStart = headerEnd + 4;
+		if (statusCode < 0 || end == bodyStart) return null;
+		try {
+			@SuppressWarnings("unchecked")
+			HashMap<String, Object> responseMap = mapper.readValue(buffer.array(), bodyStart, end - bodyStart, HashMap.class);
+			responseMap.put("status", statusCode);
+			return responseMap;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return the offset of the \r\n\r\n ending the headers, -1 if it has not been received yet
+	 */
+	private static int indexOfHeaderEnd(ByteBuffer buffer) {
+		byte[] bytes = buffer.array();
+		for (int i = 0; i + 3 < buffer.position(); i++)
+			if (bytes[i] == '\r' && bytes[i + 1] == '\n' && bytes[i + 2] == '\r' && bytes[i + 3] == '\n') return i;
+		return -1;
+	}
+
+	/**
+	 * @return the status code of the status line, e.g. 200 for "HTTP/1.1 200 OK", -1 if it is not valid
+	 */
+	private static int parseStatus(ByteBuffer buffer, int headerEnd) {
+		byte[] bytes = buffer.array();
+		int i = 0;
+		while (i < headerEnd && bytes[i] != ' ') i++;
+		int status = 0, digits = 0;
+		for (i++; i < headerEnd && bytes[i] >= '0' && bytes[i] <= '9'; i++, digits++) status = status * 10 + (bytes[i] - '0');
+		return digits == 3 ? status : -1;
+	}
+
+	/**
+	 * @return the value of the Content-Length header, -1 if it is missing
+	 */
+	private static int parseContentLength(ByteBuffer buffer, int headerEnd) {
+		byte[] bytes = buffer.array();
+		for (int line = 0; line < headerEnd; ) {
+			int lineEnd = line;
+			while (lineEnd < headerEnd && bytes[lineEnd] != '\r') lineEnd++;
+			if (lineEnd - line > CONTENT_LENGTH.length && startsWithIgnoreCase(bytes, line, CONTENT_LENGTH)) {
+				int value = 0, i = line + CONTENT_LENGTH.length;
+				while (i < lineEnd && bytes[i] == ' ') i++;
+				// Stops past BUFFER_SIZE, such a response cannot be read anyway
+				for (; i < lineEnd && bytes[i] >= '0' && bytes[i] <= '9' && value <= Requests.BUFFER_SIZE; i++) value = value * 10 + (bytes[i] - '0');
+				return value;
+			}
+			line = lineEnd + 2;
+		}
+		return -1;
+	}
+
+	private static boolean startsWithIgnoreCase(byte[] bytes, int from, byte[] lowerCase) {
+		for (int i = 0; i < lowerCase.length; i++)
+			if (Character.toLowerCase(bytes[from + i]) != lowerCase[i]) return false;
+		return true;
+	}
+}
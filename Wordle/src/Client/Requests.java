@@ -1,99 +1,52 @@
 package Client;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import java.io.*;
-import java.net.URL;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 import java.util.HashMap;
-public class Requests {
-	private enum ResponseType {
-		SIMPLE,
-		AUTH,
-		STARTED,
-		STATUS,
-		HINTS,
-		STATISTICS
-	}
-	public static final int BUFFER_SIZE = 1024 * 1024; // 1MB should be plenty of space
 
+/**
+ * The requests the client sends to the server. Whatever the protocol, a response is returned as the map
+ * of the keys of its JSON body, plus its status code under "status".
+ * get and post send a request and wait for its response, AsyncClient uses encode, responseEnd and decode
+ * to pipeline several requests on the same connection.
+ */
+public interface Requests {
+	int BUFFER_SIZE = 1024 * 1024; // 1MB should be plenty of space
 
-	public static HashMap<String, Object> get(SocketChannel socket, String url, String queryString, String token) throws IOException {
-		URL url1 = new URL(url);
-		ObjectMapper mapper = new ObjectMapper();
-		String request = String.format("%s\r\n%s\r\n%s%s\r\n%s\r\n\r\n",
-				String.format("GET %s%s HTTP/1.1", url1.getPath(), !queryString.equals("") ? "?" + queryString : ""),
-				String.format("Host: %s", url1.getHost()),
-				!token.equals("") ? String.format("Authorization: %s\r\n", token) : "",
-				"User-Agent: Wordle Java Client",
-				"Accept: */*");
-		int bytesProcessed = 0;
-		ByteBuffer buffer = ByteBuffer.wrap(request.getBytes());
-		bytesProcessed = socket.write(buffer);
-		buffer = ByteBuffer.allocate(BUFFER_SIZE);
-		bytesProcessed = socket.read(buffer);
-		if(bytesProcessed < 0) throw new IOException("Broken pipe - server unreachable");
-		buffer.flip();
-		BufferedReader reader = new BufferedReader(new StringReader(new String(buffer.array())));
-		StringBuilder responseHeader = new StringBuilder();
-		StringBuilder responseBody = new StringBuilder();
-		String response = reader.readLine();
-		String tmp;
-		int responseStatusCode;
-		while (!(tmp = reader.readLine()).equals("")) {
-			responseHeader.append(tmp);
-		}
-		while((tmp = reader.readLine()) != null) {
-			responseBody.append(tmp);
-		}
-		@SuppressWarnings("unchecked")
-		HashMap<String, Object> responseMap = mapper.readValue(responseBody.toString(), HashMap.class);
-		try {
-			responseStatusCode = Integer.parseInt(response.split(" ")[1]);
-		} catch (Exception e) { return null;}
-		responseMap.put("status", responseStatusCode);
-		reader.close();
-		return responseMap;
-	}
-	public static HashMap<String, Object> post(SocketChannel socket, String url, String queryString, String body, String token) throws IOException {
-		URL url1 = new URL(url);
-		ObjectMapper mapper = new ObjectMapper();
-		String request = String.format("%s\r\n%s\r\n%s\r\n%s%s\r\n\r\n%s\r\n\r\n",
-				String.format("POST %s%s HTTP/1.1", url1.getPath(), !queryString.equals("") ? "?" + queryString : ""),
-				String.format("Host: %s", url1.getHost()),
-				"User-Agent: Wordle Java Client",
-				!token.equals("") ? String.format("Authorization: %s\r\n", token) : "",
-				"Accept: */*",
-				body);
+	/**
+	 * @param url the url of the endpoint, e.g. http://localhost:6789/wordTimer
+	 * @param queryString the url-encoded parameters
+	 * @param token the session token, empty if there isn't one
+	 * @return the response or null if it is not valid
+	 * @throws IOException if the server is not reachable
+	 */
+	HashMap<String, Object> get(SocketChannel socket, String url, String queryString, String token) throws IOException;
 
-		int bytesProcessed = 0;
-		ByteBuffer buffer = ByteBuffer.wrap(request.getBytes());
-		bytesProcessed = socket.write(buffer);
-		buffer = ByteBuffer.allocate(BUFFER_SIZE);
-		bytesProcessed = socket.read(buffer);
-		if(bytesProcessed < 0) throw new IOException("Broken pipe - server unreachable");
-		buffer.flip();
-		BufferedReader reader = new BufferedReader(new StringReader(new String(buffer.array())));
-		StringBuilder responseHeader = new StringBuilder();
-		StringBuilder responseBody = new StringBuilder();
-		String response = reader.readLine();
-		String tmp;
-		int responseStatusCode;
-		while (!(tmp = reader.readLine()).equals("")) {
-			responseHeader.append(tmp);
-		}
-		while((tmp = reader.readLine()) != null) {
-			responseBody.append(tmp);
-		}
-		@SuppressWarnings("unchecked")
-		HashMap<String, Object> responseMap = mapper.readValue(responseBody.toString(), HashMap.class);
-		try {
-			responseStatusCode = Integer.parseInt(response.split(" ")[1]);
-		} catch (Exception e) { return null; }
-		responseMap.put("status", responseStatusCode);
-		reader.close();
-		return responseMap;
-	}
+	/**
+	 * @param body the url-encoded parameters sent in the body
+	 * @see #get(SocketChannel, String, String, String)
+	 */
+	HashMap<String, Object> post(SocketChannel socket, String url, String queryString, String body, String token) throws IOException;
 
+	/**
+	 * @param post true for a POST, false for a GET, whose body is empty
+	 * @return the bytes of the request, ready to be written, or null if the parameters are not valid
+	 * @throws IOException if the endpoint is not supported by the protocol
+	 * @see #post(SocketChannel, String, String, String, String)
+	 */
+	ByteBuffer encode(boolean post, String url, String queryString, String body, String token) throws IOException;
 
+	/**
+	 * @param buffer the bytes received, from 0 to its position
+	 * @return the offset after the first response in the buffer, -1 if it has not been received completely
+	 * @throws IOException if the response cannot be delimited or is larger than BUFFER_SIZE
+	 */
+	int responseEnd(ByteBuffer buffer) throws IOException;
+
+	/**
+	 * @param end the offset returned by responseEnd
+	 * @return the response that ends at end or null if it is not valid
+	 */
+	HashMap<String, Object> decode(ByteBuffer buffer, int end);
 }
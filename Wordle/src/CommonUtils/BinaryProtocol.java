@@ -0,0 +1,304 @@
+package CommonUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Length-prefixed binary protocol spoken on the binary port of the server, an alternative to HTTP for the Java client.
+ * Both sides build their frames from the tables below, so the layout of every message is defined once.
+ * <pre>
+ * request:  int32 length | uint8 opcode | fields of the Operation
+ * response: int32 length | uint16 status | uint8 body | fields of the Body
+ * </pre>
+ * The length counts the bytes that follow it. Strings are a uint16 length followed by UTF-8 bytes, 0xFFFF
+ * standing for null; words are 10 ASCII bytes and hints are packed in 2 bits per letter.
+ * A nullable int is Integer.MIN_VALUE when null, a nullable boolean -1.
+ */
+public class BinaryProtocol {
+	public static final int WORD_LENGTH = 10;
+	public static final int HINTS_LENGTH = (WORD_LENGTH * 2 + 7) / 8;
+	public static final int MAX_FRAME_SIZE = 64 * 1024;
+	private static final int NULL_STRING = 0xFFFF;
+	private static final int NULL_COUNT = 0xFF;
+	private static final int NULL_INT = Integer.MIN_VALUE;
+	// The value of a letter of a hint, by position: X -> 0, ? -> 1, + -> 2
+	private static final String HINT_SYMBOLS = "X?+";
+
+	public enum FieldType {
+		STRING, INT, NULLABLE_INT, LONG, DOUBLE, BOOLEAN, NULLABLE_BOOLEAN, WORD, HINTS, INT_ARRAY, STRING_LIST,
+		// A ':' separated list of words or hints, as stored in the game history
+		WORD_HISTORY, HINTS_HISTORY,
+		// A body with no binary layout, serialized as JSON in a string
+		JSON
+	}
+
+	public record Field(String name, FieldType type) {}
+
+	private static Field field(String name, FieldType type) {
+		return new Field(name, type);
+	}
+
+	private static final Field USERNAME = field("username", FieldType.STRING);
+	private static final Field TOKEN = field("token", FieldType.STRING);
+	private static final Field WORD_ID = field("wordId", FieldType.INT);
+	private static final Field DETAILS = field("details", FieldType.STRING);
+
+	/**
+	 * The requests, each one equivalent to the HTTP request with the same method and action
+	 */
+	public enum Operation {
+		REGISTER(1, "POST", "register", USERNAME, field("password", FieldType.STRING)),
+		LOGIN(2, "POST", "login", USERNAME, field("password", FieldType.STRING)),
+		VERIFY(3, "GET", "verify", USERNAME, TOKEN),
+		LOGOUT(4, "POST", "logout", USERNAME, TOKEN),
+		PLAY(5, "POST", "playWordle", USERNAME, TOKEN),
+		SEND_WORD(6, "POST", "sendWord", USERNAME, TOKEN, field("word", FieldType.WORD), WORD_ID),
+		GET_GAME_STATUS(7, "GET", "getGameStatus", USERNAME, TOKEN),
+		GET_GAME_HISTORY(8, "GET", "getGameHistory", USERNAME, TOKEN, WORD_ID),
+		WORD_TIMER(9, "GET", "wordTimer", USERNAME, TOKEN),
+		GET_STATISTICS(10, "GET", "sendMeStatistics", USERNAME, TOKEN),
+		SHARE(11, "POST", "share", USERNAME, TOKEN, WORD_ID),
+		GET_RANKING(12, "GET", "showMeRanking", USERNAME, TOKEN),
+		GET_MULTICAST(13, "GET", "getMulticast", USERNAME, TOKEN),
+		GET_CURRENT_WORD(14, "GET", "getCurrentWord");
+
+		private static final Operation[] BY_OPCODE = new Operation[256];
+		private static final HashMap<String, Operation> BY_ACTION = new HashMap<>();
+		static {
+			for (Operation operation : values()) {
+				BY_OPCODE[operation.opcode] = operation;
+				BY_ACTION.put(operation.action, operation);
+			}
+		}
+
+		public final int opcode;
+		public final String method;
+		public final String action;
+		public final Field[] fields;
+
+		Operation(int opcode, String method, String action, Field... fields) {
+			this.opcode = opcode;
+			this.method = method;
+			this.action = action;
+			this.fields = fields;
+		}
+
+		/**
+		 * @return the operation with the opcode, null if there isn't one
+		 */
+		public static Operation ofOpcode(int opcode) {
+			return opcode >= 0 && opcode < BY_OPCODE.length ? BY_OPCODE[opcode] : null;
+		}
+
+		/**
+		 * @return the operation equivalent to the HTTP action, e.g. "sendWord", null if there isn't one
+		 */
+		public static Operation ofAction(String action) {
+			return BY_ACTION.get(action);
+		}
+	}
+
+	/**
+	 * The kinds of response body, the fields have the names of the JSON keys of the HTTP responses
+	 */
+	public enum Body {
+		DETAILS(BinaryProtocol.DETAILS),
+		LOGIN(BinaryProtocol.DETAILS, TOKEN, field("multicastIp", FieldType.STRING), field("multicastPort", FieldType.NULLABLE_INT)),
+		SESSION(BinaryProtocol.DETAILS, TOKEN),
+		GAME(BinaryProtocol.DETAILS, field("wordId", FieldType.NULLABLE_INT), field("victory", FieldType.NULLABLE_BOOLEAN)),
+		GAME_STATUS(BinaryProtocol.DETAILS, field("isPlaying", FieldType.BOOLEAN), WORD_ID),
+		WORD_TIMER(BinaryProtocol.DETAILS, field("time", FieldType.LONG)),
+		GAME_HISTORY(BinaryProtocol.DETAILS, field("guesses", FieldType.WORD_HISTORY), field("hints", FieldType.HINTS_HISTORY)),
+		GUESS(BinaryProtocol.DETAILS, field("code", FieldType.NULLABLE_INT), field("translatedWord", FieldType.STRING), field("hint", FieldType.HINTS),
+				field("victory", FieldType.NULLABLE_BOOLEAN), field("wordExists", FieldType.NULLABLE_BOOLEAN), field("remainingGuesses", FieldType.NULLABLE_INT)),
+		STATISTICS(BinaryProtocol.DETAILS, field("gamesPlayed", FieldType.INT), field("gamesWonPct", FieldType.DOUBLE), field("lastStreak", FieldType.INT),
+				field("maxStreak", FieldType.INT), field("guessDistribution", FieldType.INT_ARRAY)),
+		RANKING(field("ranking", FieldType.STRING_LIST)),
+		MULTICAST(field("multicastIp", FieldType.STRING), field("multicastPort", FieldType.INT)),
+		CURRENT_WORD(field("currentWord", FieldType.STRING)),
+		JSON(field("json", FieldType.JSON));
+
+		public final Field[] fields;
+
+		Body(Field... fields) {
+			this.fields = fields;
+		}
+	}
+
+	/**
+	 * Writes a value of the field type: a String, a Number, a Boolean, an int[] or a List&lt;String&gt;.
+	 * Values that are too long for the type are truncated.
+	 * @throws java.nio.BufferOverflowException if the buffer is full
+	 */
+	public static void put(ByteBuffer buffer, FieldType type, Object value) {
+		switch (type) {
+			case STRING, JSON -> putString(buffer, (String) value);
+			case INT -> buffer.putInt(((Number) value).intValue());
+			case NULLABLE_INT -> buffer.putInt(value == null ? NULL_INT : ((Number) value).intValue());
+			case LONG -> buffer.putLong(((Number) value).longValue());
+			case DOUBLE -> buffer.putDouble(((Number) value).doubleValue());
+			case BOOLEAN -> buffer.put((byte) ((Boolean) value ? 1 : 0));
+			case NULLABLE_BOOLEAN -> buffer.put((byte) (value == null ? -1 : (Boolean) value ? 1 : 0));
+			case WORD -> putWord(buffer, (String) value);
+			case HINTS -> {
+				buffer.put((byte) (value == null ? 0 : 1));
+				if (value != null) putHints(buffer, (String) value);
+			}
+			case INT_ARRAY -> {
+				int[] values = (int[]) value;
+				buffer.put((byte) values.length);
+				for (int v : values) buffer.putInt(v);
+			}
+			case STRING_LIST -> {
+				@SuppressWarnings("unchecked")
+				List<String> values = (List<String>) value;
+				buffer.putShort((short) values.size());
+				for (String v : values) putString(buffer, v);
+			}
+			case WORD_HISTORY, HINTS_HISTORY -> {
+				String history = (String) value;
+				if (history == null) {
+					buffer.put((byte) NULL_COUNT);
+					return;
+				}
+				String[] items = history.isEmpty() ? new String[0] : history.split(":");
+				buffer.put((byte) Math.min(items.length, NULL_COUNT - 1));
+				for (int i = 0; i < items.length && i < NULL_COUNT - 1; i++) {
+					if (type == FieldType.WORD_HISTORY) putWord(buffer, items[i]);
+					else putHints(buffer, items[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads a value of the field type. The values have the types Jackson gives to the parsed JSON responses
+	 * (e.g. Integer when a long fits, ArrayList for the arrays), so the client reads both responses in the same way.
+	 * @throws java.nio.BufferUnderflowException if the buffer ends before the value
+	 */
+	public static Object get(ByteBuffer buffer, FieldType type) {
+		switch (type) {
+			case STRING, JSON -> {
+				return getString(buffer);
+			}
+			case INT -> {
+				return buffer.getInt();
+			}
+			case NULLABLE_INT -> {
+				int value = buffer.getInt();
+				return value == NULL_INT ? null : value;
+			}
+			case LONG -> {
+				long value = buffer.getLong();
+				return value == (int) value ? (Object) (int) value : (Object) value;
+			}
+			case DOUBLE -> {
+				return buffer.getDouble();
+			}
+			case BOOLEAN -> {
+				return buffer.get() != 0;
+			}
+			case NULLABLE_BOOLEAN -> {
+				byte value = buffer.get();
+				return value < 0 ? null : value != 0;
+			}
+			case WORD -> {
+				return getWord(buffer);
+			}
+			case HINTS -> {
+				return buffer.get() == 0 ? null : getHints(buffer);
+			}
+			case INT_ARRAY -> {
+				int size = buffer.get() & 0xFF;
+				ArrayList<Integer> values = new ArrayList<>(size);
+				for (int i = 0; i < size; i++) values.add(buffer.getInt());
+				return values;
+			}
+			case STRING_LIST -> {
+				int size = buffer.getShort() & 0xFFFF;
+				ArrayList<String> values = new ArrayList<>(size);
+				for (int i = 0; i < size; i++) values.add(getString(buffer));
+				return values;
+			}
+			case WORD_HISTORY, HINTS_HISTORY -> {
+				int count = buffer.get() & 0xFF;
+				if (count == NULL_COUNT) return null;
+				StringBuilder history = new StringBuilder();
+				for (int i = 0; i < count; i++) {
+					if (i > 0) history.append(':');
+					history.append(type == FieldType.WORD_HISTORY ? getWord(buffer) : getHints(buffer));
+				}
+				return history.toString();
+			}
+		}
+		throw new IllegalArgumentException("Unknown field type " + type);
+	}
+
+	public static void putString(ByteBuffer buffer, String value) {
+		if (value == null) {
+			buffer.putShort((short) NULL_STRING);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		int length = Math.min(bytes.length, NULL_STRING - 1);
+		buffer.putShort((short) length).put(bytes, 0, length);
+	}
+
+	public static String getString(ByteBuffer buffer) {
+		int length = buffer.getShort() & 0xFFFF;
+		if (length == NULL_STRING) return null;
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return true if the word is sent as it is: at most WORD_LENGTH ASCII characters. Longer words would be
+	 * truncated and the other characters replaced, which may turn them into a different valid word.
+	 */
+	public static boolean isWord(String word) {
+		if (word.length() > WORD_LENGTH) return false;
+		for (int i = 0; i < word.length(); i++) if (word.charAt(i) >= 128) return false;
+		return true;
+	}
+
+	/**
+	 * Writes WORD_LENGTH bytes: shorter words are padded with spaces, so that they are never a valid word
+	 * @see #isWord(String)
+	 */
+	private static void putWord(ByteBuffer buffer, String word) {
+		for (int i = 0; i < WORD_LENGTH; i++) buffer.put((byte) (i < word.length() && word.charAt(i) < 128 ? word.charAt(i) : ' '));
+	}
+
+	private static String getWord(ByteBuffer buffer) {
+		byte[] bytes = new byte[WORD_LENGTH];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.US_ASCII).stripTrailing();
+	}
+
+	/**
+	 * Packs the hint of a word, 4 letters per byte starting from the most significant bits
+	 */
+	private static void putHints(ByteBuffer buffer, String hints) {
+		int packed = 0;
+		for (int i = 0; i < WORD_LENGTH; i++) {
+			int value = i < hints.length() ? Math.max(HINT_SYMBOLS.indexOf(hints.charAt(i)), 0) : 0;
+			packed |= value << (HINTS_LENGTH * 8 - 2 * (i + 1));
+		}
+		for (int i = HINTS_LENGTH - 1; i >= 0; i--) buffer.put((byte) (packed >>> (8 * i)));
+	}
+
+	private static String getHints(ByteBuffer buffer) {
+		int packed = 0;
+		for (int i = 0; i < HINTS_LENGTH; i++) packed = (packed << 8) | (buffer.get() & 0xFF);
+		char[] hints = new char[WORD_LENGTH];
+		for (int i = 0; i < WORD_LENGTH; i++) {
+			int value = (packed >>> (HINTS_LENGTH * 8 - 2 * (i + 1))) & 0b11;
+			hints[i] = value < HINT_SYMBOLS.length() ? HINT_SYMBOLS.charAt(value) : 'X';
+		}
+		return new String(hints);
+	}
+}
@@ -0,0 +1,46 @@
+package Server;
+
+import CommonUtils.BinaryProtocol;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+/**
+ * Parses the frames received on the binary port into the HTTP request performing the same operation
+ */
+public class BinaryRequestParser {
+	private static final int LENGTH_SIZE = Integer.BYTES;
+
+	/**
+	 * Parses the frame that begins at offset from
+	 * @param buffer the read buffer, its position and limit are not modified
+	 * @param from the offset of the first byte of the frame
+	 * @param to the offset after the last byte read
+	 * @param maxSize the maximum size of a frame
+	 * @return the request or null if the bytes between from and to are not a complete frame. A frame with an
+	 * unknown opcode or malformed fields becomes a request with an empty path, which no endpoint serves.
+	 * @throws ConnectionState.RequestTooLargeException if the frame declares more than maxSize bytes
+	 */
+	public static HttpRequest parse(ByteBuffer buffer, int from, int to, int maxSize) throws ConnectionState.RequestTooLargeException {
+		if (to - from < LENGTH_SIZE) return null;
+		int length = buffer.getInt(from);
+		if (length < 1 || length > maxSize - LENGTH_SIZE) throw new ConnectionState.RequestTooLargeException(maxSize);
+		int end = from + LENGTH_SIZE + length;
+		if (end > to) return null;
+
+		ByteBuffer frame = buffer.duplicate().limit(end).position(from + LENGTH_SIZE);
+		BinaryProtocol.Operation operation = BinaryProtocol.Operation.ofOpcode(frame.get() & 0xFF);
+		HashMap<String, String> params = new HashMap<>();
+		if (operation == null) return new HttpRequest("GET", "", params, true, null, true, end - from);
+		try {
+			for (BinaryProtocol.Field field : operation.fields) {
+				Object value = BinaryProtocol.get(frame, field.type());
+				if (value != null) params.put(field.name(), String.valueOf(value));
+			}
+		} catch (BufferUnderflowException e) {
+			return new HttpRequest(operation.method, "", new HashMap<>(), true, null, true, end - from);
+		}
+		return new HttpRequest(operation.method, "/" + operation.action, params, true, null, true, end - from);
+	}
+}
@@ -0,0 +1,48 @@
+package Server;
+
+import CommonUtils.BinaryProtocol;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.nio.ByteBuffer;
+
+import static Server.Responses.*;
+
+/**
+ * Encodes the bodies of the responses in the frames of the binary protocol. Every record of Responses has
+ * its BinaryProtocol.Body, whose fields are written in the order of the record components.
+ */
+public class BinaryResponses {
+	private static final int LENGTH_SIZE = Integer.BYTES;
+
+	/**
+	 * Writes the whole response frame at the position of the buffer
+	 * @throws java.nio.BufferOverflowException if the frame does not fit in the buffer
+	 */
+	public static void write(ByteBuffer buffer, int status, Object body) throws JsonProcessingException {
+		int start = buffer.position();
+		buffer.position(start + LENGTH_SIZE);
+		buffer.putShort((short) status);
+		if (body instanceof Details b) put(buffer, BinaryProtocol.Body.DETAILS, b.details());
+		else if (body instanceof Login b) put(buffer, BinaryProtocol.Body.LOGIN, b.details(), b.token(), b.multicastIp(), b.multicastPort());
+		else if (body instanceof Session b) put(buffer, BinaryProtocol.Body.SESSION, b.details(), b.token());
+		else if (body instanceof Game b) put(buffer, BinaryProtocol.Body.GAME, b.details(), b.wordId(), b.victory());
+		else if (body instanceof GameStatus b) put(buffer, BinaryProtocol.Body.GAME_STATUS, b.details(), b.isPlaying(), b.wordId());
+		else if (body instanceof WordTimer b) put(buffer, BinaryProtocol.Body.WORD_TIMER, b.details(), b.time());
+		else if (body instanceof GameHistory b) put(buffer, BinaryProtocol.Body.GAME_HISTORY, b.details(), b.guesses(), b.hints());
+		else if (body instanceof Guess b)
+			put(buffer, BinaryProtocol.Body.GUESS, b.details(), b.code(), b.translatedWord(), b.hint(), b.victory(), b.wordExists(), b.remainingGuesses());
+		else if (body instanceof Statistics b)
+			put(buffer, BinaryProtocol.Body.STATISTICS, b.details(), b.gamesPlayed(), b.gamesWonPct(), b.lastStreak(), b.maxStreak(), b.guessDistribution());
+		else if (body instanceof Ranking b) put(buffer, BinaryProtocol.Body.RANKING, b.ranking());
+		else if (body instanceof Multicast b) put(buffer, BinaryProtocol.Body.MULTICAST, b.multicastIp(), b.multicastPort());
+		else if (body instanceof CurrentWord b) put(buffer, BinaryProtocol.Body.CURRENT_WORD, b.currentWord());
+		// Bodies without a binary layout, e.g. the metrics
+		else put(buffer, BinaryProtocol.Body.JSON, Responses.MAPPER.writeValueAsString(body));
+		buffer.putInt(start, buffer.position() - start - LENGTH_SIZE);
+	}
+
+	private static void put(ByteBuffer buffer, BinaryProtocol.Body body, Object... values) {
+		buffer.put((byte) body.ordinal());
+		for (int i = 0; i < body.fields.length; i++) BinaryProtocol.put(buffer, body.fields[i].type(), values[i]);
+	}
+}
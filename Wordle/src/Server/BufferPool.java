@@ -0,0 +1,77 @@
+package Server;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of direct ByteBuffers used for the socket reads and writes.
+ * When all the buffers are leased, a heap buffer is returned instead and counted as a miss,
+ * so the pool never blocks the selector thread.
+ */
+public class BufferPool {
+	private final ArrayBlockingQueue<ByteBuffer> buffers;
+	private final int bufferSize;
+	private final int capacity;
+	private final AtomicInteger allocated;
+	private final AtomicInteger leased;
+	private final AtomicLong misses;
+
+	public BufferPool(int capacity, int bufferSize) {
+		this.capacity = capacity;
+		this.bufferSize = bufferSize;
+		this.buffers = new ArrayBlockingQueue<>(capacity);
+		this.allocated = new AtomicInteger(0);
+		this.leased = new AtomicInteger(0);
+		this.misses = new AtomicLong(0);
+	}
+
+	/**
+	 * @return a cleared buffer of bufferSize bytes, direct if the pool is not exhausted
+	 */
+	public ByteBuffer lease() {
+		ByteBuffer buffer = buffers.poll();
+		if (buffer == null) {
+			if (allocated.incrementAndGet() <= capacity) buffer = ByteBuffer.allocateDirect(bufferSize);
+			else {
+				allocated.decrementAndGet();
+				misses.incrementAndGet();
+				return ByteBuffer.allocate(bufferSize);
+			}
+		}
+		leased.incrementAndGet();
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * Gives the buffer back to the pool. Buffers that were not leased from the pool are ignored.
+	 * @param buffer the buffer to release, it must not be used after this call
+	 */
+	public void release(ByteBuffer buffer) {
+		if (buffer == null || !buffer.isDirect() || buffer.capacity() != bufferSize) return;
+		leased.decrementAndGet();
+		buffers.offer(buffer);
+	}
+
+	public int bufferSize() {
+		return bufferSize;
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	public int allocated() {
+		return Math.min(allocated.get(), capacity);
+	}
+
+	public int leased() {
+		return leased.get();
+	}
+
+	public long misses() {
+		return misses.get();
+	}
+}
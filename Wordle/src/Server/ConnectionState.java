@@ -0,0 +1,531 @@
+package Server;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * State attached to every client SelectionKey. It accumulates the bytes read from the socket,
+ * splits them into complete HTTP requests and keeps the responses waiting to be written.
+ * Pipelined requests are handed to the executor together, up to MAX_PIPELINED_REQUESTS per connection:
+ * every request gets a slot in an ordered queue, the handlers fill the slots in any order and the
+ * responses are written strictly in the order of the requests (persistent keep-alive connection).
+ * The read and the response buffers are leased from the BufferPool only while they hold data.
+ * A connection can also become a stream (e.g. text/event-stream) or a WebSocket: after the response opening it,
+ * no more requests are dispatched and the messages pushed by the server are written in order.
+ * The connection tracks the times the timeouts are measured from, its reactor checks them through a TimingWheel.
+ */
+public class ConnectionState {
+	/**
+	 * The outcome of push
+	 */
+	public enum PushResult {
+		QUEUED,
+		// Queued, but the oldest message waiting has been dropped to make room for it
+		REPLACED_OLDEST,
+		// Not queued: the connection is closed, or is going to be because its consumer is too slow
+		REJECTED
+	}
+
+	/**
+	 * The reason a connection has timed out
+	 */
+	public enum Expiry {
+		// Nothing has been received for readIdleTimeout and no request is in flight
+		READ_IDLE("readIdle"),
+		// The client has not read what is waiting to be written for writeStallTimeout
+		WRITE_STALL("writeStall"),
+		// The connection has been open for connectionLifetime
+		LIFETIME("lifetime");
+
+		public final String metricName;
+
+		Expiry(String metricName) {
+			this.metricName = metricName;
+		}
+	}
+
+	public static class RequestTooLargeException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		public RequestTooLargeException(int size) {
+			super("Request exceeds " + size + " bytes");
+		}
+	}
+
+	// Room left at the beginning of the response buffer for the status line and the headers
+	private static final int HEADER_SPACE = 512;
+
+	/**
+	 * Lets Jackson write into a ByteBuffer, failing with a BufferOverflowException when it is full
+	 */
+	private static class ByteBufferOutputStream extends OutputStream {
+		private final ByteBuffer buffer;
+
+		ByteBufferOutputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public void write(int b) {
+			buffer.put((byte) b);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) {
+			buffer.put(bytes, offset, length);
+		}
+	}
+
+	/**
+	 * A request in flight and, once its handler has finished, the buffers of its response
+	 */
+	private static class Slot {
+		private final HttpRequest request;
+		private ByteBuffer[] response;
+
+		Slot(HttpRequest request) {
+			this.request = request;
+			this.response = null;
+		}
+
+		boolean written() {
+			return response != null && !response[response.length - 1].hasRemaining();
+		}
+	}
+
+	private final BufferPool bufferPool;
+	// True for the connections accepted on the binary port, whose requests are binary frames
+	private final boolean binary;
+	private ByteBuffer readBuffer;
+	private final ArrayDeque<Slot> slots;
+	// Messages pushed on a stream, written after the responses. They can be shared by several connections.
+	private final ArrayDeque<ByteBuffer> pushed;
+	// The WebSocket control frames among the pushed messages, by identity: they are never dropped
+	private final Set<ByteBuffer> controlFrames;
+	private boolean streaming;
+	private boolean webSocket;
+	// Set when a stream consumer is too slow to keep up with the pushed messages, or its session has ended
+	private boolean overflowed;
+	// Set when a WebSocket close frame has been queued: the connection is closed once it is written
+	private boolean closeAfterPushed;
+	// Set when a request asked to close the connection: no request after it is dispatched
+	private boolean closeAfterResponses;
+	private boolean closed;
+	private final long createdAt;
+	private long lastReadAt;
+	// Set when there are bytes to write and the last write did not make progress, cleared when a write does
+	private long writeStalledSince;
+	// Scheduled on the wheel of the reactor, used only by the reactor thread
+	private TimingWheel.Timeout<SelectionKey> timeout;
+	// The last user authenticated on the connection, read and written by the handlers of its requests
+	private volatile Principal principal;
+
+	public ConnectionState(BufferPool bufferPool, boolean binary) {
+		this.bufferPool = bufferPool;
+		this.binary = binary;
+		this.readBuffer = null;
+		this.slots = new ArrayDeque<>();
+		this.pushed = new ArrayDeque<>();
+		this.controlFrames = Collections.newSetFromMap(new IdentityHashMap<>());
+		this.streaming = false;
+		this.webSocket = false;
+		this.overflowed = false;
+		this.closeAfterPushed = false;
+		this.closeAfterResponses = false;
+		this.closed = false;
+		this.createdAt = System.currentTimeMillis();
+		this.lastReadAt = createdAt;
+		this.writeStalledSince = 0;
+		this.timeout = null;
+		this.principal = null;
+	}
+
+	/**
+	 * Appends the bytes available on the channel to the read buffer
+	 * @param channel the channel of the connection
+	 * @return the number of bytes read, -1 if the client closed the connection
+	 * @throws IOException if the channel cannot be read or the buffered request is too large
+	 */
+	public int read(SocketChannel channel) throws IOException {
+		if (readBuffer == null) readBuffer = bufferPool.lease();
+		if (!readBuffer.hasRemaining()) {
+			if (readBuffer.capacity() >= ServerConfig.MAX_REQUEST_SIZE) throw new RequestTooLargeException(ServerConfig.MAX_REQUEST_SIZE);
+			// Requests larger than a pooled buffer are rare, so they are accumulated on the heap
+			ByteBuffer bigger = ByteBuffer.allocate(Math.min(readBuffer.capacity() * 2, ServerConfig.MAX_REQUEST_SIZE));
+			readBuffer.flip();
+			bigger.put(readBuffer);
+			bufferPool.release(readBuffer);
+			readBuffer = bigger;
+		}
+		int bytesRead = channel.read(readBuffer);
+		if (bytesRead > 0) lastReadAt = System.currentTimeMillis();
+		if (readBuffer.position() == 0) releaseReadBuffer();
+		return bytesRead;
+	}
+
+	/**
+	 * Parses the next complete request from the read buffer and reserves its place in the response queue.
+	 * A request is complete when the header terminator has been received together with Content-Length bytes of body.
+	 * @return the parsed request or null if the buffered bytes are not a complete request, the connection
+	 * is closing or MAX_PIPELINED_REQUESTS requests are already in flight
+	 * @throws RequestTooLargeException if the declared Content-Length cannot fit in the read buffer
+	 */
+	public synchronized HttpRequest nextRequest() throws RequestTooLargeException {
+		if (streaming || closeAfterResponses || slots.size() >= ServerConfig.MAX_PIPELINED_REQUESTS || readBuffer == null) return null;
+		int start = 0, end = readBuffer.position();
+		// Empty lines before the request line are ignored (RFC 7230, section 3.5)
+		while (!binary && start + 1 < end && readBuffer.get(start) == '\r' && readBuffer.get(start + 1) == '\n') start += 2;
+		HttpRequest request = binary ? BinaryRequestParser.parse(readBuffer, start, end, ServerConfig.MAX_REQUEST_SIZE)
+				: HttpRequestParser.parse(readBuffer, start, end, ServerConfig.MAX_REQUEST_SIZE);
+		if (request == null) {
+			discard(start);
+			return null;
+		}
+		discard(start + request.length());
+		closeAfterResponses = !request.keepAlive();
+		slots.add(new Slot(request));
+		return request;
+	}
+
+	/**
+	 * Stores the response of a request in flight, it will be written when the responses of the
+	 * previous requests have been written and the channel is writable.
+	 * The body is serialized straight into a pooled buffer after HEADER_SPACE bytes, then the headers,
+	 * whose Content-Length is known only at that point, are written right before it.
+	 * A heap buffer is used only if the response does not fit.
+	 * @param request the request returned by nextRequest
+	 * @param status the HTTP status of the response
+	 * @param writer the writer serializing the body
+	 * @param body the body of the response
+	 * @throws IOException if the body cannot be serialized
+	 */
+	public synchronized void setResponse(HttpRequest request, int status, ObjectWriter writer, Object body) throws IOException {
+		Slot slot = slotOf(request);
+		if (slot == null) return;
+		ByteBuffer buffer = bufferPool.lease();
+		try {
+			buffer.position(HEADER_SPACE);
+			writer.writeValue(new ByteBufferOutputStream(buffer), body);
+			int end = buffer.position();
+			int start = ResponseHeaders.writeBefore(buffer, HEADER_SPACE, status, end - HEADER_SPACE);
+			buffer.limit(end).position(start);
+			slot.response = new ByteBuffer[]{buffer};
+		} catch (IOException | RuntimeException e) {
+			// Most likely the body did not fit, otherwise serializing it again throws the same exception.
+			// The serialized body is sent as it is, after a separate header buffer
+			bufferPool.release(buffer);
+			byte[] bodyBytes = writer.writeValueAsBytes(body);
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SPACE);
+			header.position(ResponseHeaders.writeBefore(header, HEADER_SPACE, status, bodyBytes.length));
+			slot.response = new ByteBuffer[]{header, ByteBuffer.wrap(bodyBytes)};
+		}
+	}
+
+	/**
+	 * Stores the response of a request received on the binary port, encoded in a pooled buffer when it fits
+	 * @param request the request returned by nextRequest
+	 * @param status the status of the response
+	 * @param body the body of the response, one of the records of Responses
+	 * @throws IOException if the body cannot be serialized
+	 */
+	public synchronized void setBinaryResponse(HttpRequest request, int status, Object body) throws IOException {
+		Slot slot = slotOf(request);
+		if (slot == null) return;
+		ByteBuffer buffer = bufferPool.lease();
+		try {
+			BinaryResponses.write(buffer, status, body);
+		} catch (BufferOverflowException e) {
+			bufferPool.release(buffer);
+			buffer = ByteBuffer.allocate(CommonUtils.BinaryProtocol.MAX_FRAME_SIZE);
+			BinaryResponses.write(buffer, status, body);
+		}
+		slot.response = new ByteBuffer[]{buffer.flip()};
+	}
+
+	/**
+	 * Stores a response whose bytes are already serialized, e.g. a shared read-only buffer
+	 * @param request the request returned by nextRequest
+	 * @param prebuilt the complete response, status line included
+	 */
+	public synchronized void setResponse(HttpRequest request, ByteBuffer prebuilt) {
+		Slot slot = slotOf(request);
+		if (slot != null) slot.response = new ByteBuffer[]{prebuilt};
+	}
+
+	/**
+	 * Turns the connection into a stream: the response of request opens it, then the pushed messages follow
+	 * @param request the request returned by nextRequest
+	 * @param header the response opening the stream, it must not declare a Content-Length
+	 */
+	public synchronized void startStream(HttpRequest request, ByteBuffer header) {
+		streaming = true;
+		// A stream ends when one of the two sides closes it, not after its first response
+		closeAfterResponses = false;
+		setResponse(request, header);
+	}
+
+	/**
+	 * Turns the connection into a WebSocket, once the handshake is written the client frames are returned by nextFrame
+	 * @param request the upgrade request returned by nextRequest
+	 * @param handshake the 101 response accepting the upgrade
+	 */
+	public synchronized void startWebSocket(HttpRequest request, ByteBuffer handshake) {
+		webSocket = true;
+		startStream(request, handshake);
+	}
+
+	public synchronized boolean isWebSocket() {
+		return webSocket;
+	}
+
+	/**
+	 * Queues a message on a stream when its consumer has less than MAX_PUSHED_MESSAGES messages still to write.
+	 * Otherwise an event stream is disconnected, since EventSource reconnects by itself and receives the
+	 * current state again, while a WebSocket drops its oldest message not yet being written, never a control
+	 * frame. A WebSocket whose queue holds no message that can be dropped is disconnected as well.
+	 * @param message the message, its position and limit are not modified
+	 * @return REJECTED if the connection is closed or has been disconnected, so the message will never be sent
+	 */
+	public synchronized PushResult push(ByteBuffer message) {
+		if (closed || overflowed || closeAfterPushed || !streaming) return PushResult.REJECTED;
+		PushResult result = PushResult.QUEUED;
+		if (pushed.size() >= ServerConfig.MAX_PUSHED_MESSAGES) {
+			if (!webSocket) {
+				overflowed = true;
+				return PushResult.REJECTED;
+			}
+			// The head may be partially written already and the control frames are kept, the oldest other message is dropped
+			Iterator<ByteBuffer> iterator = pushed.iterator();
+			boolean dropped = false;
+			while (iterator.hasNext() && !dropped) {
+				ByteBuffer oldest = iterator.next();
+				if (oldest.position() > 0 || controlFrames.contains(oldest)) continue;
+				iterator.remove();
+				dropped = true;
+			}
+			if (!dropped) {
+				overflowed = true;
+				return PushResult.REJECTED;
+			}
+			result = PushResult.REPLACED_OLDEST;
+		}
+		pushed.add(message.duplicate());
+		return result;
+	}
+
+	/**
+	 * Queues a WebSocket control frame, which is never dropped
+	 * @param frame the frame, e.g. a pong
+	 * @param thenClose true for a close frame: nothing is queued after it and the connection is closed once it is written
+	 */
+	public synchronized void pushControl(ByteBuffer frame, boolean thenClose) {
+		if (closed || closeAfterPushed || !webSocket) return;
+		pushed.add(frame);
+		controlFrames.add(frame);
+		closeAfterPushed = thenClose;
+	}
+
+	/**
+	 * Ends a stream whose session is no longer valid: a WebSocket is sent a close frame and closed once it is
+	 * written, an event stream is closed right away with the messages still queued
+	 * @param closeFrame the close frame sent on a WebSocket
+	 */
+	public synchronized void endStream(ByteBuffer closeFrame) {
+		if (closed || !streaming) return;
+		if (webSocket) pushControl(closeFrame, true);
+		else overflowed = true;
+	}
+
+	/**
+	 * Parses the next complete frame sent by the client on a WebSocket
+	 * @return the frame or null if the connection is not a WebSocket or the buffered bytes are not a complete frame
+	 * @throws RequestTooLargeException if the frame is larger than MAX_REQUEST_SIZE
+	 */
+	public synchronized WebSocketFrames.Frame nextFrame() throws RequestTooLargeException {
+		if (!webSocket || closeAfterPushed || readBuffer == null) return null;
+		WebSocketFrames.Frame frame = WebSocketFrames.parse(readBuffer, 0, readBuffer.position(), ServerConfig.MAX_REQUEST_SIZE);
+		if (frame != null) discard(frame.length());
+		return frame;
+	}
+
+	/**
+	 * Writes, with a single gathering write, the responses that are ready at the head of the queue,
+	 * as much as the channel accepts without blocking. Whatever is not written stays queued.
+	 * @param channel the channel of the connection
+	 * @return true if the connection has to be closed, because the response to a request asking for it or a
+	 * WebSocket close frame has been written, or because the consumer of a stream is too slow
+	 * @throws IOException if the channel cannot be written
+	 */
+	public synchronized boolean writeResponses(SocketChannel channel) throws IOException {
+		if (overflowed) return true;
+		int buffers = 0;
+		boolean allReady = true;
+		for (Slot slot : slots) {
+			if (slot.response == null) {
+				allReady = false;
+				break;
+			}
+			buffers += slot.response.length;
+		}
+		// The pushed messages follow the response opening the stream
+		if (allReady) buffers += pushed.size();
+		if (buffers == 0) return false;
+		ByteBuffer[] ready = new ByteBuffer[buffers];
+		int i = 0;
+		for (Slot slot : slots) {
+			if (slot.response == null) break;
+			for (ByteBuffer buffer : slot.response) ready[i++] = buffer;
+		}
+		if (allReady) for (ByteBuffer message : pushed) ready[i++] = message;
+		long written = channel.write(ready);
+		// Progress restarts the stall timeout, a write that leaves bytes behind starts it
+		if (written > 0) writeStalledSince = 0;
+		if (ready[ready.length - 1].hasRemaining() && writeStalledSince == 0) writeStalledSince = System.currentTimeMillis();
+		while (!slots.isEmpty() && slots.peek().written()) {
+			release(slots.poll());
+			if (slots.isEmpty() && closeAfterResponses) return true;
+		}
+		if (slots.isEmpty()) while (!pushed.isEmpty() && !pushed.peek().hasRemaining()) controlFrames.remove(pushed.poll());
+		return closeAfterPushed && slots.isEmpty() && pushed.isEmpty();
+	}
+
+	/**
+	 * Updates the interest set of the key: OP_WRITE while the response at the head of the queue is ready,
+	 * OP_READ while more requests can be dispatched, or always on a stream to notice when the client leaves.
+	 * When the pipeline is full the client is not read,
+	 * so that it is slowed down by TCP instead of filling the read buffer.
+	 * Called by the reactor and by the handlers, under the lock of the connection so no update is lost.
+	 */
+	public synchronized void updateInterest(SelectionKey key) {
+		if (closed || !key.isValid()) return;
+		int ops = 0;
+		if (streaming || (!closeAfterResponses && slots.size() < ServerConfig.MAX_PIPELINED_REQUESTS)) ops |= SelectionKey.OP_READ;
+		if (!slots.isEmpty() && slots.peek().response != null) ops |= SelectionKey.OP_WRITE;
+		if ((slots.isEmpty() && !pushed.isEmpty()) || overflowed) ops |= SelectionKey.OP_WRITE;
+		key.interestOps(ops);
+	}
+
+	/**
+	 * A write that leaves nothing behind does not start the stall timeout, even if it fills the socket buffer,
+	 * and then no other write is attempted until the channel is writable again: such a stall is noticed here.
+	 * @param now the current time in milliseconds
+	 * @return the reason the connection has timed out, null if it has not
+	 */
+	public synchronized Expiry expired(long now, ServerConfig config) {
+		boolean writeReady = slots.isEmpty() ? !pushed.isEmpty() : slots.peek().response != null;
+		if (writeReady && writeStalledSince == 0) writeStalledSince = now;
+		for (Expiry expiry : Expiry.values())
+			if (deadline(expiry, config) <= now) return expiry;
+		return null;
+	}
+
+	/**
+	 * @param now the current time in milliseconds
+	 * @return when the connection has to be checked again: its earliest deadline, or after the shortest
+	 * timeout if none of them applies now, e.g. while a request is in flight
+	 */
+	public synchronized long nextDeadline(long now, ServerConfig config) {
+		long next = Long.MAX_VALUE, shortest = Long.MAX_VALUE;
+		for (Expiry expiry : Expiry.values()) {
+			next = Math.min(next, deadline(expiry, config));
+			long timeout = switch (expiry) {
+				case READ_IDLE -> config.readIdleTimeout();
+				case WRITE_STALL -> config.writeStallTimeout();
+				case LIFETIME -> config.connectionLifetime();
+			};
+			if (timeout > 0) shortest = Math.min(shortest, timeout);
+		}
+		return next != Long.MAX_VALUE ? next : now + shortest;
+	}
+
+	/**
+	 * @return the time at which the connection expires for the given reason, Long.MAX_VALUE if it does not apply now
+	 */
+	private long deadline(Expiry expiry, ServerConfig config) {
+		return switch (expiry) {
+			// An event stream only receives, the client never sends anything on it
+			case READ_IDLE -> config.readIdleTimeout() > 0 && slots.isEmpty() && (!streaming || webSocket)
+					? lastReadAt + config.readIdleTimeout() : Long.MAX_VALUE;
+			case WRITE_STALL -> config.writeStallTimeout() > 0 && writeStalledSince != 0
+					? writeStalledSince + config.writeStallTimeout() : Long.MAX_VALUE;
+			case LIFETIME -> config.connectionLifetime() > 0 ? createdAt + config.connectionLifetime() : Long.MAX_VALUE;
+		};
+	}
+
+	public Principal principal() {
+		return principal;
+	}
+
+	public void principal(Principal principal) {
+		this.principal = principal;
+	}
+
+	public TimingWheel.Timeout<SelectionKey> timeout() {
+		return timeout;
+	}
+
+	public void timeout(TimingWheel.Timeout<SelectionKey> timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Gives the leased buffers back to the pool, called when the connection is closed.
+	 * Responses set by handlers still running are dropped.
+	 * @return false if the connection was already closed
+	 */
+	public synchronized boolean close() {
+		if (closed) return false;
+		closed = true;
+		releaseReadBuffer();
+		while (!slots.isEmpty()) release(slots.poll());
+		pushed.clear();
+		controlFrames.clear();
+		return true;
+	}
+
+	private Slot slotOf(HttpRequest request) {
+		Iterator<Slot> iterator = slots.iterator();
+		while (iterator.hasNext()) {
+			Slot slot = iterator.next();
+			if (slot.request == request) return slot;
+		}
+		return null;
+	}
+
+	private void release(Slot slot) {
+		if (slot.response != null)
+			for (ByteBuffer buffer : slot.response) bufferPool.release(buffer);
+		slot.response = null;
+	}
+
+	private void releaseReadBuffer() {
+		bufferPool.release(readBuffer);
+		readBuffer = null;
+	}
+
+	/**
+	 * Removes the first n bytes from the read buffer, keeping the ones that belong to the next requests.
+	 * If nothing is left, the buffer goes back to the pool.
+	 */
+	private void discard(int n) {
+		if (n == readBuffer.position()) {
+			releaseReadBuffer();
+			return;
+		}
+		if (n == 0) return;
+		readBuffer.flip();
+		readBuffer.position(n);
+		readBuffer.compact();
+	}
+}
@@ -0,0 +1,82 @@
+package Server;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulkhead for the operations that hash passwords: the logins and the registrations, both over TCP and RMI,
+ * run on a small pool of their own with a bounded queue. A burst of logins, e.g. after a restart, only delays
+ * the other logins and never takes the threads of the RequestExecutor away from the games.
+ * Once the queue is full execute throws RejectedExecutionException and the operation is shed.
+ */
+public class CredentialsExecutor implements Executor {
+	private final ThreadPoolExecutor pool;
+	private final AtomicInteger active;
+	private final AtomicLong completed;
+	private final AtomicLong busyNanos;
+	private final AtomicLong shed;
+
+	public CredentialsExecutor(ServerConfig config, ServerMetrics metrics) {
+		AtomicInteger threads = new AtomicInteger(0);
+		this.pool = new ThreadPoolExecutor(config.credentialsThreads(), config.credentialsThreads(), 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(config.credentialsQueueDepth()), runnable -> {
+					Thread thread = new Thread(runnable, "credentials-" + threads.getAndIncrement());
+					thread.setDaemon(true);
+					return thread;
+				}, new ThreadPoolExecutor.AbortPolicy());
+		this.active = new AtomicInteger(0);
+		this.completed = new AtomicLong(0);
+		this.busyNanos = new AtomicLong(0);
+		this.shed = metrics.counter("credentials.shed");
+		metrics.registerGauge("credentials.active", active::get);
+		metrics.registerGauge("credentials.queueDepth", () -> pool.getQueue().size());
+		metrics.registerGauge("credentials.completed", completed::get);
+		metrics.registerGauge("credentials.busyMillis", () -> busyNanos.get() / 1000000);
+	}
+
+	/**
+	 * @throws RejectedExecutionException if the queue is full or the executor is shut down
+	 */
+	@Override
+	public void execute(Runnable operation) {
+		try {
+			pool.execute(() -> {
+				active.incrementAndGet();
+				long start = System.nanoTime();
+				try {
+					operation.run();
+				} finally {
+					busyNanos.addAndGet(System.nanoTime() - start);
+					completed.incrementAndGet();
+					active.decrementAndGet();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			shed.incrementAndGet();
+			throw e;
+		}
+	}
+
+	/**
+	 * Runs the operation on the executor and waits for its result, for the callers that cannot be resumed later
+	 * such as the RMI threads
+	 * @throws RejectedExecutionException if the operation has been shed
+	 * @throws ExecutionException if the operation has thrown an exception
+	 */
+	public <T> T call(Callable<T> operation) throws ExecutionException, InterruptedException {
+		FutureTask<T> task = new FutureTask<>(operation);
+		execute(task);
+		return task.get();
+	}
+
+	/**
+	 * Stops accepting operations and waits a little for the running ones
+	 */
+	public void shutdown() {
+		pool.shutdown();
+		try {
+			pool.awaitTermination(1, TimeUnit.SECONDS);
+		} catch (InterruptedException ignored) {}
+	}
+}
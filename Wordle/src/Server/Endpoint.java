@@ -0,0 +1,34 @@
+package Server;
+
+/**
+ * The operations exposed by the server, resolved from the HTTP method and path by the Router
+ */
+public enum Endpoint {
+	NOT_SUPPORTED(false),
+	REGISTER(false),
+	LOGIN(false),
+	VERIFY(true),
+	LOGOUT(true),
+	PLAY(true),
+	GET_GAME_STATUS(true),
+	GET_GAME_HISTORY(true),
+	WORD_TIMER(true),
+	SEND_WORD(true),
+	GET_STATISTICS(true),
+	SHARE(true),
+	GET_RANKING(true),
+	GET_MULTICAST(true),
+	GET_CURRENT_WORD(false),
+	GET_METRICS(true),
+	EVENTS(true),
+	WEBSOCKET(true),
+	BATCH(true),
+	OPTIONS(false);
+
+	// True if the request must carry the username and the token of a valid session
+	public final boolean authenticated;
+
+	Endpoint(boolean authenticated) {
+		this.authenticated = authenticated;
+	}
+}
@@ -0,0 +1,236 @@
+package Server;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes the changes of the game state to the clients subscribed to the /events stream (Server-Sent Events),
+ * so that they do not have to poll getGameStatus and wordTimer, and the ranking changes and the shared games
+ * to the web clients connected to /ws (WebSocket), which cannot receive the RMI callbacks and the multicast.
+ * Every event is encoded once and the same read-only bytes are queued on all the connections receiving it.
+ * The subscriptions of closed connections are removed the first time an event cannot be queued on them.
+ * Every subscription belongs to the session that opened it: once the session is revoked, by a logout or by
+ * its expiration, the stream is closed instead of receiving the next event, at the latest with the heartbeat.
+ */
+public class EventBroadcaster {
+	private static final long HEARTBEAT_SECONDS = 15;
+	// A comment line, ignored by EventSource: it keeps proxies from closing idle streams and finds the closed ones
+	private static final ByteBuffer HEARTBEAT = ByteBuffer.wrap(": ping\n\n".getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+	private static final ByteBuffer PING = WebSocketFrames.control(WebSocketFrames.PING, new byte[0]).asReadOnlyBuffer();
+	// The status of the close frame ending a WebSocket whose session has been revoked
+	private static final int POLICY_VIOLATION = 1008;
+
+	private record Subscriber(SelectionKey key, ConnectionState connection, LoginHandler.TokenSession session) {}
+
+	// username -> streams opened by the user
+	private final ConcurrentHashMap<String, Set<Subscriber>> subscribers;
+	private final AtomicInteger subscriberCount;
+	private final AtomicLong sent;
+	private final AtomicLong dropped;
+	private final Set<Subscriber> webSockets;
+	private final AtomicLong webSocketSent;
+	private final AtomicLong webSocketDropped;
+
+	public EventBroadcaster(ServerMetrics metrics) {
+		this.subscribers = new ConcurrentHashMap<>();
+		this.subscriberCount = new AtomicInteger(0);
+		this.sent = metrics.counter("events.sent");
+		this.dropped = metrics.counter("events.dropped");
+		metrics.registerGauge("events.subscribers", subscriberCount::get);
+		this.webSockets = ConcurrentHashMap.newKeySet();
+		this.webSocketSent = metrics.counter("ws.sent");
+		this.webSocketDropped = metrics.counter("ws.dropped");
+		metrics.registerGauge("ws.subscribers", webSockets::size);
+		ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "events-heartbeat");
+			thread.setDaemon(true);
+			return thread;
+		});
+		heartbeat.scheduleAtFixedRate(() -> {
+			subscribers.keySet().forEach(username -> push(username, HEARTBEAT));
+			pushWebSockets(PING);
+		}, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Adds a connection, already turned into a stream, to the receivers of the events of username
+	 * @param session the session that opened the stream, which is closed once the session is revoked
+	 */
+	public void subscribe(String username, LoginHandler.TokenSession session, SelectionKey key, ConnectionState connection) {
+		// Added inside compute, so that a set emptied by push cannot be removed right after the subscription
+		subscribers.compute(username, (k, streams) -> {
+			if (streams == null) streams = ConcurrentHashMap.newKeySet();
+			streams.add(new Subscriber(key, connection, session));
+			return streams;
+		});
+		subscriberCount.incrementAndGet();
+	}
+
+	/**
+	 * Adds a connection, already turned into a WebSocket, to the receivers of the ranking changes and the shared games
+	 * @param session the session that opened the WebSocket, which is closed once the session is revoked
+	 */
+	public void subscribeWebSocket(LoginHandler.TokenSession session, SelectionKey key, ConnectionState connection) {
+		webSockets.add(new Subscriber(key, connection, session));
+	}
+
+	/**
+	 * Closes the streams and the WebSockets of username whose session has been revoked, e.g. right after a logout
+	 */
+	public void closeRevoked(String username) {
+		Set<Subscriber> streams = subscribers.get(username);
+		if (streams != null) {
+			for (Subscriber subscriber : streams) {
+				if (subscriber.session().isRevoked() && streams.remove(subscriber)) {
+					subscriberCount.decrementAndGet();
+					end(subscriber);
+				}
+			}
+			subscribers.computeIfPresent(username, (k, current) -> current.isEmpty() ? null : current);
+		}
+		for (Subscriber subscriber : webSockets)
+			if (subscriber.session().isRevoked() && webSockets.remove(subscriber)) end(subscriber);
+	}
+
+	/**
+	 * @return true if username has at least one stream open, so its events are worth computing
+	 */
+	public boolean hasSubscribers(String username) {
+		return subscribers.containsKey(username);
+	}
+
+	/**
+	 * Sends the "word" event to everyone: a new secret word has been extracted, the games in progress are over
+	 * @param timeUntilNewWord milliseconds until the next word
+	 */
+	public void publishWord(long timeUntilNewWord) {
+		ByteBuffer event = encode("word", new Responses.WordTimer("", timeUntilNewWord));
+		if (event == null) return;
+		subscribers.keySet().forEach(username -> push(username, event));
+	}
+
+	/**
+	 * Sends the "game" event to the streams of username, with the same body returned by getGameStatus
+	 */
+	public void publishGame(String username, boolean isPlaying, int wordId) {
+		ByteBuffer event = encode("game", new Responses.GameStatus("", isPlaying, wordId));
+		if (event != null) push(username, event);
+	}
+
+	/**
+	 * Sends the new top of the ranking to the WebSocket clients
+	 */
+	public void publishRanking(List<String> top) {
+		ByteBuffer message = encodeNotification("ranking", new Responses.Ranking(top));
+		if (message != null) pushWebSockets(message);
+	}
+
+	/**
+	 * Sends a shared game to the WebSocket clients, as the multicast group receives it
+	 */
+	public void publishShare(Responses.SharedGame sharedGame) {
+		ByteBuffer message = encodeNotification("share", sharedGame);
+		if (message != null) pushWebSockets(message);
+	}
+
+	/**
+	 * Queues a notification on a single WebSocket, e.g. the current ranking sent when it is opened
+	 */
+	public void sendWebSocket(ConnectionState connection, String type, Object data) {
+		ByteBuffer message = encodeNotification(type, data);
+		if (message != null && connection.push(message) != ConnectionState.PushResult.REJECTED) webSocketSent.incrementAndGet();
+	}
+
+	/**
+	 * Queues an event on a single stream, e.g. the current state sent when it is opened
+	 */
+	public void send(ConnectionState connection, String event, Object data) {
+		ByteBuffer encoded = encode(event, data);
+		if (encoded != null && connection.push(encoded) != ConnectionState.PushResult.REJECTED) sent.incrementAndGet();
+	}
+
+	private void push(String username, ByteBuffer event) {
+		Set<Subscriber> streams = subscribers.get(username);
+		if (streams == null) return;
+		for (Subscriber subscriber : streams) {
+			boolean revoked = subscriber.session().isRevoked();
+			if (!revoked && subscriber.connection().push(event) != ConnectionState.PushResult.REJECTED) {
+				sent.incrementAndGet();
+				subscriber.connection().updateInterest(subscriber.key());
+				subscriber.key().selector().wakeup();
+				continue;
+			}
+			// Closed, too slow and about to be closed by its reactor, or opened by a session that has ended
+			if (streams.remove(subscriber)) {
+				subscriberCount.decrementAndGet();
+				if (revoked) end(subscriber);
+				else if (subscriber.key().isValid()) dropped.incrementAndGet();
+			}
+		}
+		subscribers.computeIfPresent(username, (k, current) -> current.isEmpty() ? null : current);
+	}
+
+	private void pushWebSockets(ByteBuffer message) {
+		for (Subscriber subscriber : webSockets) {
+			if (subscriber.session().isRevoked()) {
+				if (webSockets.remove(subscriber)) end(subscriber);
+				continue;
+			}
+			ConnectionState.PushResult result = subscriber.connection().push(message);
+			if (result == ConnectionState.PushResult.REJECTED) {
+				webSockets.remove(subscriber);
+				continue;
+			}
+			// A slow consumer loses its oldest message instead of the connection
+			if (result == ConnectionState.PushResult.REPLACED_OLDEST) webSocketDropped.incrementAndGet();
+			if (message != PING) webSocketSent.incrementAndGet();
+			subscriber.connection().updateInterest(subscriber.key());
+			subscriber.key().selector().wakeup();
+		}
+	}
+
+	/**
+	 * Closes the stream of a subscriber whose session has been revoked, a WebSocket with a close frame of its own
+	 */
+	private static void end(Subscriber subscriber) {
+		subscriber.connection().endStream(WebSocketFrames.close(POLICY_VIOLATION));
+		subscriber.connection().updateInterest(subscriber.key());
+		subscriber.key().selector().wakeup();
+	}
+
+	/**
+	 * @return the notification in a WebSocket text frame, null if data cannot be serialized
+	 */
+	private static ByteBuffer encodeNotification(String type, Object data) {
+		try {
+			return WebSocketFrames.text(Responses.WRITER.writeValueAsBytes(new Responses.Notification(type, data)));
+		} catch (JsonProcessingException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return the event in the text/event-stream format, null if data cannot be serialized
+	 */
+	private static ByteBuffer encode(String event, Object data) {
+		try {
+			byte[] json = Responses.WRITER.writeValueAsBytes(data);
+			byte[] prefix = ("event: " + event + "\ndata: ").getBytes(StandardCharsets.UTF_8);
+			return ByteBuffer.allocate(prefix.length + json.length + 2).put(prefix).put(json).put((byte) '\n').put((byte) '\n')
+					.flip().asReadOnlyBuffer();
+		} catch (JsonProcessingException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package Server;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Local stand-in for the translation API, it never touches the network.
+ * The translations are read from a file with one "word translation" pair per line; without a file,
+ * or for the words missing from it, the word itself is returned.
+ */
+public class FileTranslationProvider implements TranslationProvider {
+	private final HashMap<String, String> translations;
+
+	/**
+	 * @param path the file of the translations, null to always answer with the word itself
+	 * @throws IOException if the file cannot be read
+	 */
+	public FileTranslationProvider(String path) throws IOException {
+		this.translations = new HashMap<>();
+		if (path == null) return;
+		for (String line : Files.readAllLines(Path.of(path), StandardCharsets.UTF_8)) {
+			String[] pair = line.trim().split("\\s+", 2);
+			if (pair.length == 2) translations.put(pair[0], pair[1]);
+		}
+	}
+
+	@Override
+	public CompletableFuture<String> translate(String word) {
+		return CompletableFuture.completedFuture(translations.getOrDefault(word, word));
+	}
+}
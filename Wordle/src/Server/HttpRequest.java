@@ -0,0 +1,82 @@
+package Server;
+
+import java.util.HashMap;
+
+/**
+ * A complete HTTP request as produced by HttpRequestParser.
+ * Query, body and Authorization parameters are merged in params, the body ones having the precedence.
+ * The requests received on the binary port are translated by BinaryRequestParser into the equivalent HTTP request,
+ * so they are routed and handled in the same way, and only their responses are encoded differently.
+ */
+public class HttpRequest {
+	private final String method;
+	private final String path;
+	private final HashMap<String, String> params;
+	private final boolean keepAlive;
+	private final String webSocketKey;
+	private final boolean binary;
+	private final int length;
+
+	public HttpRequest(String method, String path, HashMap<String, String> params, boolean keepAlive, String webSocketKey, boolean binary, int length) {
+		this.method = method;
+		this.path = path;
+		this.params = params;
+		this.keepAlive = keepAlive;
+		this.webSocketKey = webSocketKey;
+		this.binary = binary;
+		this.length = length;
+	}
+
+	public String method() {
+		return method;
+	}
+
+	/**
+	 * @return the decoded path of the request, without the query string
+	 */
+	public String path() {
+		return path;
+	}
+
+	/**
+	 * @return the first segment of the path, e.g. "login" for "/login?username=..."
+	 */
+	public String action() {
+		int end = path.indexOf('/', 1);
+		return path.length() < 2 ? "" : path.substring(1, end < 0 ? path.length() : end);
+	}
+
+	public HashMap<String, String> params() {
+		return params;
+	}
+
+	public boolean keepAlive() {
+		return keepAlive;
+	}
+
+	/**
+	 * @return the Sec-WebSocket-Key header of a WebSocket upgrade request, null for the other requests
+	 */
+	public String webSocketKey() {
+		return webSocketKey;
+	}
+
+	/**
+	 * @return true if the request has been received on the binary port, so its response must be binary as well
+	 */
+	public boolean binary() {
+		return binary;
+	}
+
+	/**
+	 * @return the number of bytes the request occupied in the read buffer, headers and body included
+	 */
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public String toString() {
+		return method + " " + path;
+	}
+}
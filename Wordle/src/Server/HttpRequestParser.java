@@ -0,0 +1,179 @@
+package Server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+/**
+ * Single pass HTTP request parser working directly on the bytes of the read buffer.
+ * The request line and the headers are scanned by offsets, only the method, the path and the
+ * decoded parameter values are turned into Strings.
+ */
+public class HttpRequestParser {
+	private static final String[] METHODS = {"GET", "POST", "OPTIONS", "PUT", "DELETE", "HEAD", "PATCH"};
+	private static final byte[] HTTP_1_0 = "http/1.0".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] CONTENT_LENGTH = "content-length".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] CONNECTION = "connection".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] AUTHORIZATION = "authorization".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] CLOSE = "close".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] KEEP_ALIVE = "keep-alive".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] SEC_WEBSOCKET_KEY = "sec-websocket-key".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] BEARER = "bearer ".getBytes(StandardCharsets.US_ASCII);
+	// Decoded values are built here before becoming Strings, so that no intermediate array is allocated
+	private static final ThreadLocal<byte[]> scratch = ThreadLocal.withInitial(() -> new byte[512]);
+
+	/**
+	 * Parses the request that begins at offset from
+	 * @param buffer the read buffer, its position and limit are not modified
+	 * @param from the offset of the first byte of the request
+	 * @param to the offset after the last byte read
+	 * @param maxSize the maximum size of a request, headers and body included
+	 * @return the parsed request or null if the bytes between from and to are not a complete request
+	 * @throws ConnectionState.RequestTooLargeException if the request declares more than maxSize bytes
+	 */
+	public static HttpRequest parse(ByteBuffer buffer, int from, int to, int maxSize) throws ConnectionState.RequestTooLargeException {
+		int lineEnd = indexOfLineEnd(buffer, from, to);
+		if (lineEnd < 0) return null;
+		// Request line: METHOD SP request-target SP HTTP-version
+		int methodEnd = indexOf(buffer, from, lineEnd, (byte) ' ');
+		int targetStart = lineEnd, targetEnd = lineEnd, versionStart = lineEnd;
+		if (methodEnd < 0) methodEnd = lineEnd;
+		else {
+			targetStart = methodEnd + 1;
+			targetEnd = indexOf(buffer, targetStart, lineEnd, (byte) ' ');
+			if (targetEnd < 0) targetEnd = lineEnd;
+			else versionStart = targetEnd + 1;
+		}
+		boolean keepAlive = !equalsIgnoreCase(buffer, versionStart, lineEnd, HTTP_1_0);
+
+		int contentLength = 0, authorizationStart = -1, authorizationEnd = -1, webSocketKeyStart = -1, webSocketKeyEnd = -1;
+		int position = lineEnd + 2;
+		while (true) {
+			int end = indexOfLineEnd(buffer, position, to);
+			if (end < 0) return null;
+			if (end == position) {
+				position += 2;
+				break;
+			}
+			int colon = indexOf(buffer, position, end, (byte) ':');
+			if (colon > 0) {
+				int valueStart = colon + 1, valueEnd = end;
+				while (valueStart < valueEnd && buffer.get(valueStart) == ' ') valueStart++;
+				while (valueEnd > valueStart && buffer.get(valueEnd - 1) == ' ') valueEnd--;
+				if (equalsIgnoreCase(buffer, position, colon, CONTENT_LENGTH)) contentLength = parseLength(buffer, valueStart, valueEnd);
+				else if (equalsIgnoreCase(buffer, position, colon, CONNECTION)) {
+					if (equalsIgnoreCase(buffer, valueStart, valueEnd, CLOSE)) keepAlive = false;
+					else if (equalsIgnoreCase(buffer, valueStart, valueEnd, KEEP_ALIVE)) keepAlive = true;
+				} else if (equalsIgnoreCase(buffer, position, colon, AUTHORIZATION)) {
+					if (valueEnd - valueStart > BEARER.length && equalsIgnoreCase(buffer, valueStart, valueStart + BEARER.length, BEARER))
+						valueStart += BEARER.length;
+					authorizationStart = valueStart;
+					authorizationEnd = valueEnd;
+				} else if (equalsIgnoreCase(buffer, position, colon, SEC_WEBSOCKET_KEY)) {
+					webSocketKeyStart = valueStart;
+					webSocketKeyEnd = valueEnd;
+				}
+			}
+			position = end + 2;
+		}
+		if (contentLength < 0 || (long) position - from + contentLength > maxSize) throw new ConnectionState.RequestTooLargeException(maxSize);
+		if (position + contentLength > to) return null;
+
+		String method = method(buffer, from, methodEnd);
+		int queryStart = indexOf(buffer, targetStart, targetEnd, (byte) '?');
+		String path = decode(buffer, targetStart, queryStart < 0 ? targetEnd : queryStart, false);
+		HashMap<String, String> params = new HashMap<>();
+		if (queryStart >= 0) parseParams(buffer, queryStart + 1, targetEnd, params);
+		if (authorizationStart >= 0) params.put("token", decode(buffer, authorizationStart, authorizationEnd, true));
+		if (method.equals("POST")) parseParams(buffer, position, position + contentLength, params);
+		String webSocketKey = webSocketKeyStart >= 0 ? decode(buffer, webSocketKeyStart, webSocketKeyEnd, false) : null;
+		return new HttpRequest(method, path, params, keepAlive, webSocketKey, false, position + contentLength - from);
+	}
+
+	/**
+	 * Parses a list of key=value pairs separated by '&'. Pairs without a value are skipped.
+	 */
+	private static void parseParams(ByteBuffer buffer, int from, int to, HashMap<String, String> params) {
+		int start = from;
+		while (start < to) {
+			int end = indexOf(buffer, start, to, (byte) '&');
+			if (end < 0) end = to;
+			int equals = indexOf(buffer, start, end, (byte) '=');
+			if (equals > start && equals < end - 1 && indexOf(buffer, equals + 1, end, (byte) '=') < 0)
+				params.put(decode(buffer, start, equals, true), decode(buffer, equals + 1, end, true));
+			start = end + 1;
+		}
+	}
+
+	/**
+	 * Percent-decodes the bytes between from and to as UTF-8. Malformed escapes are kept as they are.
+	 * @param plusAsSpace true for form encoded values, where '+' stands for a space
+	 */
+	static String decode(ByteBuffer buffer, int from, int to, boolean plusAsSpace) {
+		byte[] bytes = scratch.get();
+		if (bytes.length < to - from) {
+			bytes = new byte[Math.max(to - from, bytes.length * 2)];
+			scratch.set(bytes);
+		}
+		int length = 0;
+		for (int i = from; i < to; i++) {
+			byte b = buffer.get(i);
+			if (b == '+' && plusAsSpace) b = ' ';
+			else if (b == '%' && i + 2 < to) {
+				int high = Character.digit(buffer.get(i + 1), 16), low = Character.digit(buffer.get(i + 2), 16);
+				if (high >= 0 && low >= 0) {
+					b = (byte) ((high << 4) + low);
+					i += 2;
+				}
+			}
+			bytes[length++] = b;
+		}
+		return new String(bytes, 0, length, StandardCharsets.UTF_8);
+	}
+
+	private static String method(ByteBuffer buffer, int from, int to) {
+		for (String method : METHODS) {
+			if (method.length() != to - from) continue;
+			int i = 0;
+			while (i < method.length() && buffer.get(from + i) == method.charAt(i)) i++;
+			if (i == method.length()) return method;
+		}
+		return decode(buffer, from, to, false);
+	}
+
+	private static int parseLength(ByteBuffer buffer, int from, int to) {
+		if (from == to || to - from > 9) return -1;
+		int value = 0;
+		for (int i = from; i < to; i++) {
+			int digit = buffer.get(i) - '0';
+			if (digit < 0 || digit > 9) return -1;
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	private static int indexOfLineEnd(ByteBuffer buffer, int from, int to) {
+		for (int i = from; i < to - 1; i++)
+			if (buffer.get(i) == '\r' && buffer.get(i + 1) == '\n') return i;
+		return -1;
+	}
+
+	private static int indexOf(ByteBuffer buffer, int from, int to, byte b) {
+		for (int i = from; i < to; i++)
+			if (buffer.get(i) == b) return i;
+		return -1;
+	}
+
+	/**
+	 * @param lowerCase the expected bytes, in lower case
+	 */
+	private static boolean equalsIgnoreCase(ByteBuffer buffer, int from, int to, byte[] lowerCase) {
+		if (to - from != lowerCase.length) return false;
+		for (int i = 0; i < lowerCase.length; i++) {
+			byte b = buffer.get(from + i);
+			if (b >= 'A' && b <= 'Z') b += 'a' - 'A';
+			if (b != lowerCase[i]) return false;
+		}
+		return true;
+	}
+}
@@ -1,59 +1,254 @@
 package Server;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * The sessions of the logged users. The store is split in shards, each one with its own lock, selected by the
+ * hash of the username, so the requests of different users rarely contend; a renewal only updates an atomic
+ * timestamp of the session, without locking.
+ * A session expires after sessionIdleTimeout without requests or sessionMaxAge after the login. Expired sessions
+ * are dropped when they are accessed and by a sweeper that visits the shards periodically, so the sessions
+ * of the users who never log out do not accumulate.
+ * A user can have up to maxSessionsPerUser sessions at the same time.
+ * A session removed from the store is marked as revoked, so the principals cached on the connections
+ * (see RequestHandler) notice it without looking the session up again.
+ */
 public class LoginHandler {
+	private static final int SHARDS = 16;
+
 	public static class TokenSession {
 		// After a new TokenSession object is created, the token field is only read by the threads
 		private final String token;
-		private final AtomicLong loginTime;
+		private final byte[] tokenBytes;
+		private final long loginTime;
+		private final AtomicLong lastAccess;
 		private final WordleDB.Authorization loginType;
+		private volatile boolean revoked;
 		public TokenSession(String token, long loginTime, WordleDB.Authorization loginType) {
 			this.token = token;
-			this.loginTime = new AtomicLong(loginTime);
+			this.tokenBytes = token.getBytes(StandardCharsets.UTF_8);
+			this.loginTime = loginTime;
+			this.lastAccess = new AtomicLong(loginTime);
 			this.loginType = loginType;
+			this.revoked = false;
 		}
 
 		public String getToken() {
 			return token;
 		}
+
+		/**
+		 * Compares the tokens in constant time, so the time taken does not tell how much of a guessed token is right
+		 */
+		public boolean hasToken(String token) {
+			return token != null && MessageDigest.isEqual(tokenBytes, token.getBytes(StandardCharsets.UTF_8));
+		}
+
+		public boolean isRevoked() {
+			return revoked;
+		}
 		public long getLoginTime() {
-			return loginTime.get();
+			return loginTime;
+		}
+
+		public long getLastAccess() {
+			return lastAccess.get();
 		}
 
-		public void updateLoginTime() {
-			loginTime.set(System.currentTimeMillis());
+		public void updateLastAccess() {
+			lastAccess.set(System.currentTimeMillis());
 		}
 		public WordleDB.Authorization getLoginType() {
 			return loginType;
 		}
 	}
-	private final ConcurrentHashMap<String, TokenSession> userSessions;
-	public LoginHandler() {
-		this.userSessions = new ConcurrentHashMap<>();
+
+	// username -> sessions of the user, the most recent last. Every shard is guarded by its own lock.
+	private final HashMap<String, ArrayList<TokenSession>>[] shards;
+	private final long idleTimeout;
+	private final long maxAge;
+	private final int maxSessionsPerUser;
+	private final AtomicInteger activeSessions;
+	private final AtomicLong expiredSessions;
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public LoginHandler(ServerConfig config, ServerMetrics metrics) {
+		this.shards = (HashMap<String, ArrayList<TokenSession>>[]) new HashMap[SHARDS];
+		for (int i = 0; i < SHARDS; i++) shards[i] = new HashMap<>();
+		this.idleTimeout = config.sessionIdleTimeout();
+		this.maxAge = config.sessionMaxAge();
+		this.maxSessionsPerUser = config.maxSessionsPerUser();
+		this.activeSessions = new AtomicInteger(0);
+		this.expiredSessions = metrics.counter("sessions.expired");
+		metrics.registerGauge("sessions.active", activeSessions::get);
+		long sweepInterval = sweepInterval();
+		if (sweepInterval > 0) {
+			ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "session-sweeper");
+				thread.setDaemon(true);
+				return thread;
+			});
+			sweeper.scheduleWithFixedDelay(this::sweep, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+		}
 	}
+
+	/**
+	 * @return the most recent session of username, null if the user is not logged in
+	 */
 	public TokenSession getUserSession(String username) {
-		return userSessions.get(username);
+		HashMap<String, ArrayList<TokenSession>> shard = shardOf(username);
+		synchronized (shard) {
+			ArrayList<TokenSession> sessions = liveSessions(shard, username, System.currentTimeMillis());
+			return sessions != null ? sessions.get(sessions.size() - 1) : null;
+		}
 	}
 
+	/**
+	 * @return the session of username identified by token, null if there is none or it has expired
+	 */
+	public TokenSession getUserSession(String username, String token) {
+		HashMap<String, ArrayList<TokenSession>> shard = shardOf(username);
+		synchronized (shard) {
+			ArrayList<TokenSession> sessions = liveSessions(shard, username, System.currentTimeMillis());
+			if (sessions == null) return null;
+			for (TokenSession session : sessions)
+				if (session.hasToken(token)) return session;
+			return null;
+		}
+	}
 
-	public void addSession(WordleDB.Authorization sessionType, String username, String token) {
+	/**
+	 * Adds a session if the user has less than maxSessionsPerUser sessions
+	 * @return true if the session has been added
+	 */
+	public boolean addSession(WordleDB.Authorization sessionType, String username, String token) {
+		if (sessionType == WordleDB.Authorization.NOT_AUTHORIZED) return false;
 		TokenSession newSession = new TokenSession(token, System.currentTimeMillis(), sessionType);
-		if (sessionType != WordleDB.Authorization.NOT_AUTHORIZED)  userSessions.putIfAbsent(username, newSession);
+		HashMap<String, ArrayList<TokenSession>> shard = shardOf(username);
+		synchronized (shard) {
+			ArrayList<TokenSession> sessions = liveSessions(shard, username, newSession.getLoginTime());
+			if (sessions == null) {
+				sessions = new ArrayList<>(1);
+				shard.put(username, sessions);
+			}
+			if (sessions.size() >= maxSessionsPerUser) return false;
+			sessions.add(newSession);
+		}
+		activeSessions.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * Removes the session of username identified by token
+	 */
+	public void removeSession(String username, String token) {
+		HashMap<String, ArrayList<TokenSession>> shard = shardOf(username);
+		synchronized (shard) {
+			ArrayList<TokenSession> sessions = shard.get(username);
+			if (sessions == null) return;
+			Iterator<TokenSession> iterator = sessions.iterator();
+			while (iterator.hasNext()) {
+				TokenSession session = iterator.next();
+				if (!session.hasToken(token)) continue;
+				session.revoked = true;
+				iterator.remove();
+				activeSessions.decrementAndGet();
+			}
+			if (sessions.isEmpty()) shard.remove(username);
+		}
+	}
+
+	/**
+	 * Restarts the idle timeout of the session, its maximum age still counts from the login
+	 */
+	public void renewSession(TokenSession session) {
+		if (session != null) session.updateLastAccess();
+	}
+
+	/**
+	 * Checks a session obtained earlier without locking its shard
+	 * @return true if the session has not been removed and has not expired
+	 */
+	public boolean isActive(TokenSession session) {
+		return !session.isRevoked() && !isExpired(session, System.currentTimeMillis());
 	}
 
-	public void removeSession(String username) {
-		userSessions.remove(username);
+	/**
+	 * @return true if the session has been idle for too long or has reached its maximum age
+	 */
+	private boolean isExpired(TokenSession session, long now) {
+		return (idleTimeout > 0 && now - session.getLastAccess() >= idleTimeout) || (maxAge > 0 && now - session.getLoginTime() >= maxAge);
 	}
 
-	public void renewSession(String username) {
-		if(userSessions.containsKey(username)) userSessions.get(username).updateLoginTime();
+	/**
+	 * Drops the expired sessions of username, called with the lock of the shard
+	 * @return the sessions left, null if there are none
+	 */
+	private ArrayList<TokenSession> liveSessions(HashMap<String, ArrayList<TokenSession>> shard, String username, long now) {
+		ArrayList<TokenSession> sessions = shard.get(username);
+		if (sessions == null) return null;
+		int before = sessions.size();
+		sessions.removeIf(session -> revokeIfExpired(session, now));
+		expired(before - sessions.size());
+		if (!sessions.isEmpty()) return sessions;
+		shard.remove(username);
+		return null;
 	}
 
+	/**
+	 * Drops the expired sessions of every shard, locking one shard at a time
+	 */
+	private void sweep() {
+		for (HashMap<String, ArrayList<TokenSession>> shard : shards) {
+			long now = System.currentTimeMillis();
+			synchronized (shard) {
+				Iterator<Map.Entry<String, ArrayList<TokenSession>>> iterator = shard.entrySet().iterator();
+				while (iterator.hasNext()) {
+					ArrayList<TokenSession> sessions = iterator.next().getValue();
+					int before = sessions.size();
+					sessions.removeIf(session -> revokeIfExpired(session, now));
+					expired(before - sessions.size());
+					if (sessions.isEmpty()) iterator.remove();
+				}
+			}
+		}
+	}
 
+	private boolean revokeIfExpired(TokenSession session, long now) {
+		if (!isExpired(session, now)) return false;
+		session.revoked = true;
+		return true;
+	}
 
+	private void expired(int sessions) {
+		if (sessions == 0) return;
+		activeSessions.addAndGet(-sessions);
+		expiredSessions.addAndGet(sessions);
+	}
 
+	/**
+	 * @return half of the shortest timeout, so a session outlives it by at most that much, 0 if sessions never expire
+	 */
+	private long sweepInterval() {
+		long shortest = Long.MAX_VALUE;
+		if (idleTimeout > 0) shortest = idleTimeout;
+		if (maxAge > 0) shortest = Math.min(shortest, maxAge);
+		return shortest == Long.MAX_VALUE ? 0 : Math.max(shortest / 2, 1000);
+	}
 
+	private HashMap<String, ArrayList<TokenSession>> shardOf(String username) {
+		int hash = username.hashCode();
+		// Spreads the high bits, as HashMap does, before taking the low ones
+		return shards[(hash ^ (hash >>> 16)) & (SHARDS - 1)];
+	}
 }
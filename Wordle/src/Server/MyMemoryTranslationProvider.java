@@ -0,0 +1,56 @@
+package Server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Translations from the MyMemory public API, requested with the asynchronous java.net.http client
+ */
+public class MyMemoryTranslationProvider implements TranslationProvider {
+	private static final String URL = "https://api.mymemory.translated.net/get?langpair=en%7Cit&q=";
+	private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(2);
+	private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(4);
+	private final HttpClient client;
+
+	public MyMemoryTranslationProvider() {
+		this.client = HttpClient.newBuilder()
+				.connectTimeout(CONNECT_TIMEOUT)
+				.followRedirects(HttpClient.Redirect.NORMAL)
+				.build();
+	}
+
+	/**
+	 * @return the address of the translation of the word, URI.create rejects the characters not encoded
+	 */
+	static URI uri(String word) {
+		return URI.create(URL + URLEncoder.encode(word, StandardCharsets.UTF_8));
+	}
+
+	@Override
+	public CompletableFuture<String> translate(String word) {
+		HttpRequest request = HttpRequest.newBuilder(uri(word))
+				.timeout(REQUEST_TIMEOUT)
+				.GET()
+				.build();
+		return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).thenApply(response -> {
+			if (response.statusCode() != 200) throw new CompletionException(new IOException("MyMemory answered " + response.statusCode()));
+			try {
+				JsonNode translation = Responses.MAPPER.readTree(response.body()).path("responseData").path("translatedText");
+				if (!translation.isTextual() || translation.asText().isBlank()) throw new IOException("No translation for " + word);
+				return translation.asText();
+			} catch (IOException e) {
+				throw new CompletionException(e);
+			}
+		});
+	}
+}
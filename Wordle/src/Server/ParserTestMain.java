@@ -0,0 +1,225 @@
+package Server;
+
+import CommonUtils.PrettyPrinter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Round-trip and fuzz checks for HttpRequestParser and a check of the MyMemory request address, followed by
+ * a microbenchmark against the BufferedReader/split parsing previously done by RequestHandler.
+ * Usage: java Server.ParserTestMain [iterations]
+ */
+public class ParserTestMain {
+	private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 -_.~!*'();:@&=+$,/?#[]%àèìòù€";
+	private static final Random random = new Random(42);
+	private static int failures = 0;
+
+	private record Generated(String method, String path, HashMap<String, String> params, byte[] bytes) {}
+
+	private static String randomString(int maxLength) {
+		int length = 1 + random.nextInt(maxLength);
+		StringBuilder builder = new StringBuilder(length);
+		for (int i = 0; i < length; i++) builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+		return builder.toString();
+	}
+
+	private static String randomKey() {
+		String[] keys = {"username", "password", "word", "wordId", "x", "key_" + random.nextInt(100)};
+		return keys[random.nextInt(keys.length)];
+	}
+
+	private static Generated generate() {
+		String method = random.nextBoolean() ? "GET" : "POST";
+		String path = "/" + new String[]{"login", "sendWord", "wordTimer", "showMeRanking", "playWordle"}[random.nextInt(5)];
+		HashMap<String, String> expected = new HashMap<>();
+		StringBuilder query = new StringBuilder();
+		StringBuilder body = new StringBuilder();
+		for (int i = random.nextInt(5); i > 0; i--) {
+			String key = randomKey(), value = randomString(20);
+			query.append(query.length() > 0 ? "&" : "").append(key).append("=").append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+			expected.put(key, value);
+		}
+		String token = random.nextBoolean() ? Integer.toHexString(random.nextInt()) : null;
+		if (token != null) expected.put("token", token);
+		if (method.equals("POST")) {
+			for (int i = random.nextInt(5); i > 0; i--) {
+				String key = randomKey(), value = randomString(20);
+				body.append(body.length() > 0 ? "&" : "").append(key).append("=").append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+				expected.put(key, value);
+			}
+		}
+		byte[] bodyBytes = body.toString().getBytes(StandardCharsets.UTF_8);
+		StringBuilder request = new StringBuilder();
+		request.append(method).append(" ").append(path).append(query.length() > 0 ? "?" + query : "").append(" HTTP/1.1\r\n");
+		request.append("Host: localhost\r\n");
+		if (token != null) request.append(random.nextBoolean() ? "Authorization: Bearer " : "authorization: ").append(token).append("\r\n");
+		if (method.equals("POST")) request.append("Content-Length: ").append(bodyBytes.length).append("\r\n");
+		request.append("\r\n").append(body);
+		return new Generated(method, path, expected, request.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			failures++;
+			PrettyPrinter.prettyPrintln("[ @RFAIL@0 ] - " + message);
+		}
+	}
+
+	private static ByteBuffer direct(byte[] bytes) {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+		buffer.put(bytes);
+		return buffer;
+	}
+
+	private static void roundTrip(int iterations) throws IOException {
+		for (int i = 0; i < iterations; i++) {
+			Generated generated = generate();
+			ByteBuffer buffer = direct(generated.bytes());
+			HttpRequest request = HttpRequestParser.parse(buffer, 0, buffer.position(), ServerConfig.MAX_REQUEST_SIZE);
+			String raw = new String(generated.bytes(), StandardCharsets.UTF_8);
+			if (request == null) {
+				check(false, "complete request not parsed: " + raw);
+				continue;
+			}
+			check(request.method().equals(generated.method()), "method " + request.method() + " for " + raw);
+			check(request.path().equals(generated.path()), "path " + request.path() + " for " + raw);
+			check(request.length() == generated.bytes().length, "length " + request.length() + " for " + raw);
+			check(request.params().equals(generated.params()), "params " + request.params() + " expected " + generated.params());
+			// Every proper prefix is an incomplete request
+			int cut = random.nextInt(generated.bytes().length);
+			check(HttpRequestParser.parse(buffer, 0, cut, ServerConfig.MAX_REQUEST_SIZE) == null, "prefix of " + cut + " bytes parsed for " + raw);
+		}
+	}
+
+	/**
+	 * Sends several requests on the same buffer, split in random chunks, as a pipelining client would do
+	 */
+	private static void pipelined(int iterations) throws IOException {
+		for (int i = 0; i < iterations; i++) {
+			List<Generated> sent = new ArrayList<>();
+			int total = 0;
+			for (int j = 1 + random.nextInt(6); j > 0; j--) {
+				Generated generated = generate();
+				sent.add(generated);
+				total += generated.bytes().length;
+			}
+			ByteBuffer stream = ByteBuffer.allocate(total);
+			for (Generated generated : sent) stream.put(generated.bytes());
+			ByteBuffer buffer = ByteBuffer.allocateDirect(total);
+			List<HttpRequest> received = new ArrayList<>();
+			int sentBytes = 0, start = 0;
+			while (sentBytes < total) {
+				int chunk = Math.min(1 + random.nextInt(64), total - sentBytes);
+				buffer.put(buffer.position(), stream, sentBytes, chunk);
+				buffer.position(buffer.position() + chunk);
+				sentBytes += chunk;
+				HttpRequest request;
+				while ((request = HttpRequestParser.parse(buffer, start, buffer.position(), ServerConfig.MAX_REQUEST_SIZE)) != null) {
+					received.add(request);
+					start += request.length();
+				}
+			}
+			check(received.size() == sent.size(), "pipelined " + sent.size() + " requests, parsed " + received.size());
+			for (int j = 0; j < Math.min(received.size(), sent.size()); j++)
+				check(received.get(j).params().equals(sent.get(j).params()), "pipelined request " + j + " params " + received.get(j).params());
+		}
+	}
+
+	/**
+	 * Mutates valid requests: the parser can only return a request, null, or reject the size
+	 */
+	private static void fuzz(int iterations) {
+		for (int i = 0; i < iterations; i++) {
+			byte[] bytes = generate().bytes().clone();
+			for (int j = random.nextInt(8); j >= 0; j--) {
+				int position = random.nextInt(bytes.length);
+				bytes[position] = switch (random.nextInt(4)) {
+					case 0 -> (byte) '\r';
+					case 1 -> (byte) '\n';
+					case 2 -> (byte) '%';
+					default -> (byte) random.nextInt(256);
+				};
+			}
+			ByteBuffer buffer = direct(bytes);
+			try {
+				HttpRequestParser.parse(buffer, 0, bytes.length, ServerConfig.MAX_REQUEST_SIZE);
+			} catch (ConnectionState.RequestTooLargeException ignored) {
+			} catch (Exception e) {
+				check(false, e + " for " + Arrays.toString(bytes));
+			}
+		}
+	}
+
+	/**
+	 * The parsing done by RequestHandler.run and RequestHandler.getParams before HttpRequestParser
+	 */
+	private static HashMap<String, String> legacyParse(String requestString) throws IOException {
+		BufferedReader reader = new BufferedReader(new StringReader(requestString));
+		String request = reader.readLine();
+		StringBuilder headerBuilder = new StringBuilder();
+		String tmp;
+		StringBuilder bodyBuilder = new StringBuilder();
+		while ((tmp = reader.readLine()) != null && !tmp.equals("")) headerBuilder.append(tmp).append("\n");
+		if (request.contains("POST")) while ((tmp = reader.readLine()) != null) bodyBuilder.append(tmp);
+		String header = headerBuilder.substring(0, headerBuilder.length() - 1);
+		String requestParams = request.split(" ")[1];
+		HashMap<String, String> params = new HashMap<>();
+		String[] splitParams = requestParams.substring(requestParams.indexOf("?") + 1).split("&");
+		for (String param : splitParams)
+			if (param.split("=").length == 2) params.put(param.split("=")[0], URLDecoder.decode(param.split("=")[1], StandardCharsets.UTF_8));
+		for (String param : header.split("\n"))
+			if (param.toLowerCase().contains("authorization:")) params.put("token", URLDecoder.decode(param.split(": ")[1].replaceAll("Bearer ", ""), StandardCharsets.UTF_8));
+		for (String param : bodyBuilder.toString().split("&"))
+			if (param.split("=").length == 2) params.put(param.split("=")[0], URLDecoder.decode(param.split("=")[1], StandardCharsets.UTF_8));
+		return params;
+	}
+
+	private static void translationUri() {
+		for (String word : new String[]{"apple", "a|b c&d", "caffè"}) {
+			try {
+				URI uri = MyMemoryTranslationProvider.uri(word);
+				check(uri.getRawQuery().equals("langpair=en%7Cit&q=" + URLEncoder.encode(word, StandardCharsets.UTF_8)), "translation query " + uri.getRawQuery());
+				check(uri.getQuery().equals("langpair=en|it&q=" + word.replace(' ', '+')), "translation decoded query " + uri.getQuery());
+			} catch (IllegalArgumentException e) {
+				check(false, "translation URI of " + word + ": " + e.getMessage());
+			}
+		}
+	}
+
+	private static void benchmark(int iterations) throws IOException {
+		String raw = "POST /sendWord HTTP/1.1\r\nHost: localhost:6789\r\nUser-Agent: Wordle Java Client\r\nAuthorization: 5f2b9c0d4e7a1b3c\r\nAccept: */*\r\nContent-Length: 45\r\n\r\nusername=leonardo&word=abbreviate&wordId=1234";
+		byte[] bytes = raw.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = direct(bytes);
+		check(legacyParse(raw).equals(HttpRequestParser.parse(buffer, 0, bytes.length, ServerConfig.MAX_REQUEST_SIZE).params()), "legacy and new parser disagree");
+		long sink = 0;
+		for (int round = 0; round < 3; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < iterations; i++) sink += legacyParse(new String(bytes, StandardCharsets.UTF_8)).size();
+			long legacy = System.nanoTime() - start;
+			start = System.nanoTime();
+			for (int i = 0; i < iterations; i++) sink += HttpRequestParser.parse(buffer, 0, bytes.length, ServerConfig.MAX_REQUEST_SIZE).params().size();
+			long parser = System.nanoTime() - start;
+			PrettyPrinter.prettyPrintln(String.format("[ @CBenchmark round %d@0 ] - legacy @M%.1f@0 ns/op, HttpRequestParser @M%.1f@0 ns/op", round + 1, (double) legacy / iterations, (double) parser / iterations));
+		}
+		if (sink == 0) System.out.println(sink);
+	}
+
+	public static void main(String[] args) throws IOException {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		roundTrip(10000);
+		pipelined(2000);
+		fuzz(50000);
+		translationUri();
+		PrettyPrinter.prettyPrintln(failures == 0 ? "[ @GInfo@0 ] - All parser checks passed" : "[ @RError@0 ] - " + failures + " parser checks failed");
+		benchmark(iterations);
+		if (failures != 0) System.exit(1);
+	}
+}
@@ -0,0 +1,64 @@
+package Server;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Hashes and verifies the passwords stored by both databases as "salt:sha256(salt + password)".
+ * Every thread reuses its own MessageDigest instead of looking one up for every password; the credentials are
+ * hashed on the threads of the CredentialsExecutor, so there are only a few of them.
+ */
+public class PasswordHasher {
+	private static final SecureRandom RANDOM = new SecureRandom();
+	private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	});
+
+	private PasswordHasher() {}
+
+	/**
+	 * @return the hexadecimal SHA-256 digest of value
+	 */
+	public static String sha256Hex(String value) {
+		MessageDigest digest = DIGEST.get();
+		// digest() resets the instance, so it is ready for the next call of the thread
+		byte[] hash = digest.digest(value.getBytes(StandardCharsets.UTF_8));
+		StringBuilder hexString = new StringBuilder(2 * hash.length);
+		for (byte b : hash) {
+			String hex = Integer.toHexString(0xff & b);
+			if (hex.length() == 1) {
+				hexString.append('0');
+			}
+			hexString.append(hex);
+		}
+		return hexString.toString();
+	}
+
+	/**
+	 * @return the password with a new random salt, in the format stored by the databases
+	 */
+	public static String hash(String password) {
+		String salt = String.valueOf((int) (RANDOM.nextDouble() * 100000));
+		return salt + ":" + sha256Hex(salt + password);
+	}
+
+	/**
+	 * Compares the digests in constant time
+	 * @param hashedPassword the password stored by the database, as returned by hash
+	 * @return true if password is the one that has been hashed
+	 */
+	public static boolean verify(String hashedPassword, String password) {
+		int separator = hashedPassword.indexOf(':');
+		if (separator < 0) return false;
+		String salt = hashedPassword.substring(0, separator);
+		byte[] expected = hashedPassword.substring(separator + 1).getBytes(StandardCharsets.UTF_8);
+		return MessageDigest.isEqual(expected, sha256Hex(salt + password).getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,14 @@
+package Server;
+
+/**
+ * A user authenticated by the token of one of its sessions, resolved once before dispatching a request
+ * and cached on the connection for the next requests carrying the same credentials
+ */
+public record Principal(String username, LoginHandler.TokenSession session) {
+	/**
+	 * @return true if the credentials of a request are the ones this principal was resolved from
+	 */
+	public boolean matches(String username, String token) {
+		return this.username.equals(username) && session.hasToken(token);
+	}
+}
@@ -0,0 +1,269 @@
+package Server;
+
+import CommonUtils.PrettyPrinter;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * I/O loop serving a subset of the client connections with its own Selector.
+ * The acceptor hands over the accepted channels, which are registered by the reactor thread itself
+ * so that register never blocks on a select in progress. Reads, request dispatching and writes of
+ * a connection always happen on the reactor that owns it.
+ * The timeouts of the connections are tracked by a TimingWheel: a connection has a single timeout, rescheduled
+ * lazily to its next deadline when it fires, so the reads and writes only update the times on ConnectionState.
+ * The connections that have timed out are closed by the reactor thread, without scanning all the keys.
+ */
+public class Reactor implements Runnable {
+	private final Selector selector;
+	private final ServerContext context;
+	private record PendingChannel(SocketChannel channel, boolean binary) {}
+
+	private final ConcurrentLinkedQueue<PendingChannel> pendingChannels;
+	private final AtomicInteger connections;
+	private final AtomicBoolean running;
+	private final TimingWheel<SelectionKey> timeouts;
+	private final boolean timeoutsEnabled;
+	private final EnumMap<ConnectionState.Expiry, AtomicLong> reaped;
+
+	public Reactor(ServerContext context) throws IOException {
+		this.selector = Selector.open();
+		this.context = context;
+		this.pendingChannels = new ConcurrentLinkedQueue<>();
+		this.connections = new AtomicInteger(0);
+		this.running = new AtomicBoolean(true);
+		this.timeouts = new TimingWheel<>(ServerConfig.TIMEOUT_TICK_MILLIS, ServerConfig.TIMING_WHEEL_SIZE, System.currentTimeMillis());
+		ServerConfig config = context.config();
+		this.timeoutsEnabled = config.readIdleTimeout() > 0 || config.writeStallTimeout() > 0 || config.connectionLifetime() > 0;
+		this.reaped = new EnumMap<>(ConnectionState.Expiry.class);
+		// The counters are shared by all the reactors
+		for (ConnectionState.Expiry expiry : ConnectionState.Expiry.values())
+			reaped.put(expiry, context.metrics().counter("connections.reaped." + expiry.metricName));
+	}
+
+	/**
+	 * Hands a new connection to this reactor, it will be registered at the next iteration of the loop
+	 * @param channel the accepted channel, already in non-blocking mode
+	 * @param binary true if the channel has been accepted on the binary port
+	 */
+	public void register(SocketChannel channel, boolean binary) {
+		connections.incrementAndGet();
+		pendingChannels.add(new PendingChannel(channel, binary));
+		selector.wakeup();
+	}
+
+	/**
+	 * @return the number of connections owned by this reactor
+	 */
+	public int connections() {
+		return connections.get();
+	}
+
+	/**
+	 * Cancels all the keys and stops the loop, the selector is closed by the reactor thread
+	 */
+	public void shutdown() {
+		running.set(false);
+		for (SelectionKey key : new HashSet<>(selector.keys())) key.cancel();
+		selector.wakeup();
+	}
+
+	/**
+	 * Closes the connection once: a key reaped by the timeouts may still be among the selected keys of the round,
+	 * and counting it twice would skew the choice of the least loaded reactor
+	 */
+	private void closeConnection(SelectionKey key) {
+		if (!(key.attachment() instanceof ConnectionState connection) || !connection.close()) {
+			key.cancel();
+			return;
+		}
+		if (connection.timeout() != null) timeouts.cancel(connection.timeout());
+		key.cancel();
+		connections.decrementAndGet();
+		try {
+			key.channel().close();
+		} catch (Exception ignored) {}
+	}
+
+	/**
+	 * Answers the control frames sent by a WebSocket client on the reactor thread, without involving the executor:
+	 * the server only pushes messages, so the data frames are ignored
+	 */
+	private void handleFrames(SelectionKey key, ConnectionState connection) {
+		WebSocketFrames.Frame frame;
+		while (true) {
+			try {
+				frame = connection.nextFrame();
+			} catch (ConnectionState.RequestTooLargeException e) {
+				PrettyPrinter.prettyPrintln("[ @RError@0 ] - Closing WebSocket: " + e.getMessage());
+				closeConnection(key);
+				return;
+			}
+			if (frame == null) break;
+			switch (frame.opcode()) {
+				case WebSocketFrames.PING -> connection.pushControl(WebSocketFrames.control(WebSocketFrames.PONG, frame.payload()), false);
+				// The close frame is echoed, then the connection is closed once it has been written
+				case WebSocketFrames.CLOSE -> connection.pushControl(WebSocketFrames.control(WebSocketFrames.CLOSE, frame.payload()), true);
+				default -> {}
+			}
+		}
+		connection.updateInterest(key);
+	}
+
+	/**
+	 * Hands the complete requests buffered on the connection to the executor, as many as the pipeline allows.
+	 * The logins and the registrations go to the CredentialsExecutor, which hashes the passwords.
+	 */
+	private void dispatchRequests(SelectionKey key) {
+		ConnectionState connection = (ConnectionState) key.attachment();
+		if (connection.isWebSocket()) {
+			handleFrames(key, connection);
+			return;
+		}
+		HttpRequest request;
+		while (true) {
+			try {
+				request = connection.nextRequest();
+			} catch (ConnectionState.RequestTooLargeException e) {
+				PrettyPrinter.prettyPrintln("[ @RError@0 ] - Closing connection: " + e.getMessage());
+				closeConnection(key);
+				return;
+			}
+			if (request == null) break;
+			Endpoint endpoint = context.router().resolve(request.method(), request.action(), request.params());
+			try {
+				if (endpoint == Endpoint.LOGIN || endpoint == Endpoint.REGISTER) context.credentials().execute(new RequestHandler(key, request, endpoint, context));
+				else context.executor().execute(new RequestHandler(key, request, endpoint, context));
+			} catch (RejectedExecutionException e) {
+				// Shed the request: answering right away is better than letting the latency grow for everyone
+				if (request.binary()) {
+					try {
+						connection.setBinaryResponse(request, 503, ResponseHeaders.OVERLOADED);
+					} catch (IOException ioException) {
+						PrettyPrinter.prettyPrintln("[ @RError@0 ] - Closing connection: " + ioException.getMessage());
+						closeConnection(key);
+						return;
+					}
+				} else connection.setResponse(request, ResponseHeaders.serviceUnavailable());
+			}
+		}
+		connection.updateInterest(key);
+	}
+
+	/**
+	 * Writes the responses ready on the connection without blocking, then dispatches the requests
+	 * that were waiting for a place in the pipeline
+	 */
+	private void writeResponses(SelectionKey key) {
+		SocketChannel com = (SocketChannel) key.channel();
+		ConnectionState connection = (ConnectionState) key.attachment();
+		try {
+			if (connection.writeResponses(com)) {
+				closeConnection(key);
+				return;
+			}
+		} catch (IOException e) {
+			PrettyPrinter.prettyPrintln("[ @RError thread " + Thread.currentThread().getName().toUpperCase() + "@0 ] - IOException thrown while responding: " + e.getMessage());
+			closeConnection(key);
+			return;
+		}
+		dispatchRequests(key);
+	}
+
+	private void registerPendingChannels() {
+		PendingChannel pending;
+		while ((pending = pendingChannels.poll()) != null) {
+			try {
+				ConnectionState connection = new ConnectionState(context.bufferPool(), pending.binary());
+				SelectionKey key = pending.channel().register(selector, SelectionKey.OP_READ, connection);
+				if (timeoutsEnabled) connection.timeout(timeouts.schedule(key, connection.nextDeadline(System.currentTimeMillis(), context.config())));
+			} catch (IOException e) {
+				connections.decrementAndGet();
+				try {
+					pending.channel().close();
+				} catch (IOException ignored) {}
+			}
+		}
+	}
+
+	/**
+	 * Closes the connection of an expired timeout if one of its deadlines has passed, otherwise reschedules it
+	 */
+	private void checkTimeout(TimingWheel.Timeout<SelectionKey> timeout, long now) {
+		SelectionKey key = timeout.owner();
+		if (!key.isValid() || !(key.attachment() instanceof ConnectionState connection)) return;
+		ConnectionState.Expiry expiry = connection.expired(now, context.config());
+		if (expiry == null) {
+			timeouts.reschedule(timeout, connection.nextDeadline(now, context.config()));
+			return;
+		}
+		reaped.get(expiry).incrementAndGet();
+		try {
+			PrettyPrinter.prettyPrintln("[ @GInfo@0 ] - Closing connection " + ((SocketChannel) key.channel()).getRemoteAddress().toString().substring(1) + ": " + expiry.metricName + " timeout");
+		} catch (IOException ignored) {}
+		closeConnection(key);
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (running.get()) {
+				// Without timeouts to check the reactor sleeps until there is something to do
+				if (timeoutsEnabled && timeouts.size() > 0) selector.select(ServerConfig.TIMEOUT_TICK_MILLIS);
+				else selector.select();
+				registerPendingChannels();
+				if (timeoutsEnabled) {
+					long now = System.currentTimeMillis();
+					timeouts.advance(now, timeout -> checkTimeout(timeout, now));
+				}
+				Set<SelectionKey> keys = selector.selectedKeys();
+				Iterator<SelectionKey> iterator = keys.iterator();
+				while (iterator.hasNext()) {
+					SelectionKey selectedKey = iterator.next();
+					iterator.remove();
+					if (!selectedKey.isValid()) {
+						closeConnection(selectedKey);
+						continue;
+					}
+					if (selectedKey.isReadable()) {
+						SocketChannel com = (SocketChannel) selectedKey.channel();
+						ConnectionState connection = (ConnectionState) selectedKey.attachment();
+						int bytesRead;
+						try {
+							bytesRead = connection.read(com);
+						} catch (IOException e) {
+							PrettyPrinter.prettyPrintln("[ @RError@0 ] - Closing connection: " + e.getMessage());
+							closeConnection(selectedKey);
+							continue;
+						}
+						if (bytesRead == -1) {
+							PrettyPrinter.prettyPrintln("[ @GInfo@0 ] - Disconnected client " + (com.getRemoteAddress().toString().substring(1)));
+							closeConnection(selectedKey);
+							continue;
+						}
+						dispatchRequests(selectedKey);
+					}
+					if (selectedKey.isValid() && selectedKey.isWritable()) writeResponses(selectedKey);
+				}
+			}
+		} catch (IOException e) {
+			PrettyPrinter.prettyPrintln("[ @RError@0 ] - Reactor stopped: " + e.getMessage());
+		} finally {
+			for (SelectionKey key : selector.keys()) closeConnection(key);
+			try {
+				selector.close();
+			} catch (IOException ignored) {}
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package Server;
+
+import CommonUtils.PrettyPrinter;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the request handlers according to the execution mode of the configuration.
+ * PLATFORM uses a pool of platform threads, VIRTUAL starts a virtual thread for every request.
+ * The number of handlers running and their total execution time are exported in the same way for
+ * both modes, so that they can be compared under the same load.
+ * The work accepted is bounded: PLATFORM queues at most requestQueueDepth requests once all the threads
+ * are busy, VIRTUAL runs at most requestQueueDepth requests at a time. Beyond that execute throws
+ * RejectedExecutionException and the request is shed.
+ */
+public class RequestExecutor implements Executor {
+	private final ExecutorService executor;
+	private final ServerConfig.ExecutionMode mode;
+	private final AtomicInteger active;
+	private final AtomicLong completed;
+	private final AtomicLong busyNanos;
+	private final AtomicLong shed;
+	// Bounds the requests running on virtual threads, null in PLATFORM mode where the queue is bounded
+	private final Semaphore permits;
+
+	public RequestExecutor(ServerConfig config, ServerMetrics metrics) {
+		ExecutorService virtualExecutor = config.executionMode() == ServerConfig.ExecutionMode.VIRTUAL ? newVirtualThreadExecutor() : null;
+		if (virtualExecutor != null) {
+			this.executor = virtualExecutor;
+			this.mode = ServerConfig.ExecutionMode.VIRTUAL;
+			this.permits = new Semaphore(config.requestQueueDepth());
+			metrics.registerGauge("executor.queueDepth", () -> 0);
+		} else {
+			// Threads beyond corePoolSize are started only when the queue is full, and stopped after a minute idle
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(config.corePoolSize(), config.maxPoolSize(), 60, TimeUnit.SECONDS,
+					new ArrayBlockingQueue<>(config.requestQueueDepth()), new ThreadPoolExecutor.AbortPolicy());
+			metrics.registerGauge("executor.poolSize", pool::getPoolSize);
+			metrics.registerGauge("executor.queueDepth", () -> pool.getQueue().size());
+			this.executor = pool;
+			this.mode = ServerConfig.ExecutionMode.PLATFORM;
+			this.permits = null;
+		}
+		this.active = new AtomicInteger(0);
+		this.completed = new AtomicLong(0);
+		this.busyNanos = new AtomicLong(0);
+		this.shed = metrics.counter("executor.shed");
+		metrics.registerGauge("executor.mode", mode::toString);
+		metrics.registerGauge("executor.active", active::get);
+		metrics.registerGauge("executor.completed", completed::get);
+		metrics.registerGauge("executor.busyMillis", () -> busyNanos.get() / 1000000);
+	}
+
+	/**
+	 * The server is compiled for Java 17, where virtual threads do not exist, so the factory is looked up
+	 * at runtime. On a JVM that does not provide it the platform thread pool is used instead.
+	 * @return an executor starting a virtual thread per task, null if the JVM does not support them
+	 */
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			PrettyPrinter.prettyPrintln("[ @YWarning@0 ] - Virtual threads are not supported by this JVM (" + Runtime.version() + "), using platform threads");
+			return null;
+		}
+	}
+
+	public ServerConfig.ExecutionMode mode() {
+		return mode;
+	}
+
+	/**
+	 * @throws RejectedExecutionException if the executor is saturated or shut down
+	 */
+	@Override
+	public void execute(Runnable handler) {
+		if (permits != null && !permits.tryAcquire()) {
+			shed.incrementAndGet();
+			throw new RejectedExecutionException("Too many requests in execution");
+		}
+		try {
+			executor.execute(() -> {
+				active.incrementAndGet();
+				long start = System.nanoTime();
+				try {
+					handler.run();
+				} finally {
+					busyNanos.addAndGet(System.nanoTime() - start);
+					completed.incrementAndGet();
+					active.decrementAndGet();
+					if (permits != null) permits.release();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			if (permits != null) permits.release();
+			shed.incrementAndGet();
+			throw e;
+		}
+	}
+
+	/**
+	 * Stops accepting requests and waits a little for the running ones
+	 */
+	public void shutdown() {
+		executor.shutdown();
+		try {
+			executor.awaitTermination(1, TimeUnit.SECONDS);
+		} catch (InterruptedException ignored) {}
+	}
+}
@@ -1,64 +1,71 @@
 package Server;
 
 import CommonUtils.PrettyPrinter;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.*;
 import java.net.*;
-import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
-import java.nio.channels.SocketChannel;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.*;
 
+import static Server.Responses.*;
+
 public class RequestHandler implements Runnable{
-	private enum Endpoint {
-		NOT_SUPPORTED,
-		REGISTER,
-		LOGIN,
-		VERIFY,
-		LOGOUT,
-		PLAY,
-		GET_GAME_STATUS,
-		GET_GAME_HISTORY,
-		WORD_TIMER,
-		SEND_WORD,
-		GET_STATISTICS,
-		SHARE,
-		GET_RANKING,
-		GET_MULTICAST,
-		GET_CURRENT_WORD,
-		OPTIONS
-	}
 	private final WordleDB database;
 	private final LoginHandler loginHandler;
 	private final WordFactory wordFactory;
-	private final String requestString;
+	private final TranslationService translations;
+	private final EventBroadcaster events;
+	private final HttpRequest request;
 	private final SelectionKey key;
-	private final Selector selector;
 	private final ServerConfig config;
-	public RequestHandler(Selector selector, SelectionKey key, String requestString, WordleDB database, LoginHandler loginHandler, WordFactory wordFactory, ServerConfig config) {
-		this.database = database;
-		this.loginHandler = loginHandler;
-		this.wordFactory = wordFactory;
-		this.requestString = requestString;
+	private final ServerMetrics metrics;
+	private final Router router;
+	private final Endpoint endpoint;
+	/**
+	 * @param endpoint the endpoint resolved by the reactor for the request
+	 */
+	public RequestHandler(SelectionKey key, HttpRequest request, Endpoint endpoint, ServerContext context) {
+		this.database = context.database();
+		this.loginHandler = context.loginHandler();
+		this.wordFactory = context.wordFactory();
+		this.translations = context.translations();
+		this.events = context.events();
+		this.request = request;
 		this.key = key;
-		this.selector = selector;
-		this.config = config;
+		this.config = context.config();
+		this.metrics = context.metrics();
+		this.router = context.router();
+		this.endpoint = endpoint;
 	}
 
 	private boolean credentialsBlankOrNull(String a, String b) {
 		return a == null || b == null || a.isBlank() || b.isBlank();
 	}
 
-	private void printRequestResponse(String apiEndpoint, String rawEndpoint, HashMap<String, String> request, HashMap<String, Object> response) {
+	/**
+	 * The authentication stage, run once before dispatching an endpoint that requires it.
+	 * The principal cached on the connection is reused while the requests carry the same credentials and its
+	 * session is active, otherwise the session is looked up and the new principal replaces the cached one.
+	 * @return the principal or null if the credentials are not valid
+	 */
+	private Principal authenticate(String username, String token) {
+		if (credentialsBlankOrNull(username, token)) return null;
+		ConnectionState connection = (ConnectionState) key.attachment();
+		Principal principal = connection.principal();
+		if (principal == null || !principal.matches(username, token) || !loginHandler.isActive(principal.session())) {
+			LoginHandler.TokenSession session = loginHandler.getUserSession(username, token);
+			if (session == null) return null;
+			principal = new Principal(username, session);
+			connection.principal(principal);
+		}
+		// Every authorized request keeps the session alive
+		loginHandler.renewSession(principal.session());
+		return principal;
+	}
+
+	private void printRequestResponse(String apiEndpoint, String rawEndpoint, HashMap<String, String> request, Object body) {
 		StringBuilder text = new StringBuilder();
 		text.append(String.format("~~~~~[ @YNew connection from %s@0 ]~~~~~\n", request.get("username") != null ? request.get("username") : ""));
 		text.append(String.format("[ @CRequest %s@0 ] - ", apiEndpoint.equals(Endpoint.NOT_SUPPORTED.toString()) ? rawEndpoint : apiEndpoint));
@@ -74,11 +81,14 @@ public class RequestHandler implements Runnable{
 			if(i != 0) text.append(", ");
 			else text.append("\n");
 		}
+		// Only in verbose mode the record is converted to a map, to print it as the other key-value pairs
+		Object converted = Responses.MAPPER.convertValue(body, Object.class);
+		Map<?, ?> response = converted instanceof Map<?, ?> map ? map : Map.of("results", converted);
 		i = response.size();
 		text.append("[ @MResponse@0 ] - ");
 
-		for (Map.Entry<String, Object> entry : response.entrySet()) {
-			String toPrint = entry.getValue().toString();
+		for (Map.Entry<?, ?> entry : response.entrySet()) {
+			String toPrint = String.valueOf(entry.getValue());
 			text.append("(").append(entry.getKey()).append(", ").append(toPrint).append(")");
 			i--;
 			if(i != 0) text.append(", ");
@@ -89,593 +99,370 @@ public class RequestHandler implements Runnable{
 		PrettyPrinter.prettyPrintln(text.toString());
 	}
 
+	private static Reply reply(int status, Object body) {
+		return new Reply(status, body);
+	}
 
-	private void handleRequest(String request, String header, String body) {
-		HashMap<String,String> params = getParams(request.split(" ")[1], header, body);
-		Endpoint endpoint = getEndpoint(request, params);
+	/**
+	 * Executes the operation of the endpoint
+	 * @param principal the authenticated user, null if the endpoint does not require authentication
+	 * @return the status and the body of the response
+	 */
+	private Reply dispatch(Endpoint endpoint, Principal principal, HashMap<String, String> params) throws Exception {
+		switch (endpoint) {
+			case NOT_SUPPORTED -> {
+				return reply(405, new Details("Method not allowed"));
+			}
+			case OPTIONS -> {
+				return reply(200, Map.of()); // Handle CORS preflight request
+			}
 
-		try {
-			HashMap<String, Object> response = new HashMap<>();
-			switch (endpoint){
-				case NOT_SUPPORTED -> {
-					response.put("details", "Method not allowed");
-					attachJson("405", response);
+			case REGISTER -> {
+				String username = params.get("username");
+				String password = params.get("password");
+				if (credentialsBlankOrNull(username, password)) return reply(400, new Details("Invalid registration"));
+				if (database.insertUser(username, password, "user")) return reply(200, new Details("Registration successful"));
+				return reply(409, new Details("User already exists"));
+			}
+			case LOGIN -> {
+				String username = params.get("username");
+				String password = params.get("password");
+				if (credentialsBlankOrNull(username, password)) return reply(400, new Details("Invalid login"));
+
+				WordleDB.Authorization loginType = database.validateUser(username, password);
+				if (loginType == WordleDB.Authorization.NOT_AUTHORIZED) return reply(401, new Details("Not authorized"));
+				String sessionToken = generateSessionToken(username);
+				if (sessionToken.isBlank()) return reply(500, new Login("Internal server error", null, config.multicastAddress(), config.multicastPort()));
+				if (!loginHandler.addSession(loginType, username, sessionToken)) {
+					// The user already has maxSessionsPerUser sessions, the most recent one is renewed and returned
+					LoginHandler.TokenSession session = loginHandler.getUserSession(username);
+					if (session == null) return reply(500, new Login("Internal server error", null, config.multicastAddress(), config.multicastPort()));
+					loginHandler.renewSession(session);
+					return reply(400, new Login("Already logged in!", session.getToken(), config.multicastAddress(), config.multicastPort()));
 				}
-				case OPTIONS -> attachJson("200", response); // Handle CORS preflight request
-
-				case REGISTER -> {
-					String username = params.get("username");
-					String password = params.get("password");
-					if(credentialsBlankOrNull(username, password)){
-						response.put("details", "Invalid registration");
-						attachJson("400", response);
-					}
-
-					if(database.insertUser(username, password, "user")) {
-						response.put("details", "Registration successful");
-						attachJson("200", response);
-					}
+				return reply(200, new Login("Login successful", sessionToken, config.multicastAddress(), config.multicastPort()));
+			}
 
-					else {
-						response.put("details", "User already exists");
-						attachJson("409",  response);
-					}
+			case VERIFY -> {
+				// The authentication stage has already renewed the session
+				return reply(200, new Session("Session renewed", "True"));
+			}
 
+			case LOGOUT -> {
+				String username = principal.username();
+				String currentWord = wordFactory.getCurrentWord();
+				loginHandler.removeSession(username, principal.session().getToken());
+				((ConnectionState) key.attachment()).principal(null);
+				// The streams opened with the session stop receiving its events
+				events.closeRevoked(username);
+				if (database.isPlaying(username, currentWord)) {
+					database.closeGame(username, currentWord);
+					// If I close a game before winning, the streak is interrupted
+					if (!database.isGameWon(username, currentWord)) database.resetUserStreaks(username);
 				}
-				case LOGIN -> {
-					String username = params.get("username");
-					String password = params.get("password");
-					if(credentialsBlankOrNull(username, password)) {
-						response.put("details", "Invalid login");
-						attachJson("400", response);
-					}
+				return reply(200, new Details("Logout successful"));
+			}
 
-					WordleDB.Authorization loginType = database.validateUser(username, password);
-					if (loginType == WordleDB.Authorization.NOT_AUTHORIZED) {
-						response.put("details", "Not authorized");
-						attachJson("401", response);
-					} else {
-						response.put("multicastIp", config.multicastAddress());
-						response.put("multicastPort", config.multicastPort());
-						if(loginHandler.getUserSession(username) != null) {
-							loginHandler.renewSession(username);
-							response.put("details", "Already logged in!");
-							response.put("token", loginHandler.getUserSession(username).getToken());
-							attachJson("400", response);
-						} else {
-							String sessionToken = generateSessionToken(username);
-							if (sessionToken.isBlank()) {
-								response.put("details", "Internal server error");
-								attachJson("500", response);
-
-							} else {
-								loginHandler.addSession(loginType, username, sessionToken);
-								response.put("details", "Login successful");
-								response.put("token", sessionToken);
-								attachJson("200", response);
-							}
-						}
-					}
+			case PLAY -> {
+				String username = principal.username();
+				String currentWord = wordFactory.getCurrentWord();
+				if (!database.gameExists(username, currentWord)) {
+					if (database.insertGame(username, currentWord)) return reply(200, new Game("Game started!", database.getWordId(currentWord), null));
+					return reply(500, new Details("Internal server error"));
 				}
+				if (!database.isGameClosed(username, currentWord))
+					return reply(400, new Game("Bad request - Game already started", database.getWordId(currentWord), null));
+				return reply(400, new Game("Bad request - Game closed", null, database.isGameWon(username, currentWord)));
+			}
+			// Used by the bew app
+			case GET_GAME_STATUS -> {
+				String username = principal.username();
+				boolean isPlaying = database.isPlaying(username, wordFactory.getCurrentWord());
+				return reply(200, new GameStatus("", isPlaying, isPlaying ? database.getWordId(wordFactory.getCurrentWord()) : -1));
+			}
 
-				case VERIFY -> {
-					String username = params.get("username");
-					String token = params.get("token");
-					if(credentialsBlankOrNull(username, token) || (loginHandler.getUserSession(username) == null || !loginHandler.getUserSession(username).getToken().equals(token))) {
-						response.put("details", "Not authorized");
-						attachJson("401", response);
-					}
-					else {
-						loginHandler.renewSession(username);
-						response.put("details", "Session renewed");
-						response.put("token", "True");
-						attachJson("200", response);
-					}
+			case WORD_TIMER -> {
+				return reply(200, new WordTimer("", wordFactory.getTimeUntilNewWord()));
+			}
+
+			// Returns all the guesses and the hints of the game identified by wordId
+			case GET_GAME_HISTORY -> {
+				String username = principal.username();
+				int wordId;
+				try {
+					wordId = Integer.parseInt(params.get("wordId"));
+				} catch (Exception ignored) {
+					return reply(400, new Details("wordId not valid"));
 				}
+				return reply(200, new GameHistory("", database.getGuessesHistory(username, wordId), database.getHintsHistory(username, wordId)));
+			}
 
-				case LOGOUT -> {
-					String username = params.get("username");
-					String token = params.get("token");
-					String currentWord = wordFactory.getCurrentWord();
-					if(credentialsBlankOrNull(username, token) || loginHandler.getUserSession(username) == null || !loginHandler.getUserSession(username).getToken().equals(token)) {
-						response.put("details", "Not authorized");
-						attachJson("401", response);
-					}
-					else {
-						loginHandler.removeSession(username);
-						response.put("details", "Logout successful");
-						if (database.isPlaying(username, currentWord)) {
-							database.closeGame(username, currentWord);
-							// If I close a game before winning, the streak is interrupted
-							if (!database.isGameWon(username, currentWord)) database.resetUserStreaks(username);
-						}
-						attachJson("200", response);
-					}
+			case SEND_WORD -> {
+				String username = principal.username();
+				String sentWord = params.get("word");
+				String currentWord = wordFactory.getCurrentWord();
+				int wordId;
+				try {
+					wordId = Integer.parseInt(params.get("wordId"));
+				} catch (Exception ignored) {
+					return reply(400, Guess.error("WordId not valid", 100));
 				}
+				if (wordId != database.getWordId(currentWord)) return reply(400, Guess.error("Word changed, start a new game", 100));
+				if (!database.gameExists(username, currentWord)) return reply(400, Guess.error("Bad request - Start a game first", 200));
+				if (database.isGameWon(username, currentWord)) return reply(400, Guess.error("Bad request - Game already won", 300));
 
-				case PLAY -> {
-					String username = params.get("username");
-					String token = params.get("token");
-					String currentWord = wordFactory.getCurrentWord();
-
-					if(credentialsBlankOrNull(username, token) || loginHandler.getUserSession(username) == null || !loginHandler.getUserSession(username).getToken().equals(token)) {
-						response.put("details", "Not authorized");
-						attachJson("401", response);
-					} else if (!database.gameExists(username, currentWord)) {
-						if(database.insertGame(username, currentWord)) {
-							response.put("details", "Game started!");
-							response.put("wordId", database.getWordId(currentWord));
-							attachJson("200", response);
-						}
-						else {
-							response.put("details", "Internal server error");
-							attachJson("500", response);
-						}
-					} else{
-						if (!database.isGameClosed(username, currentWord)) {
-							response.put("details", "Bad request - Game already started");
-							response.put("wordId", database.getWordId(currentWord));
-						} else {
-							response.put("details", "Bad request - Game closed");
-							response.put("victory", database.isGameWon(username, currentWord));
-						}
-						attachJson("400", response);
-					}
+				if (database.getGuessesNumber(username, wordId) >= 12) {
+					database.resetUserStreaks(username);
+					return reply(400, new Guess("Finished guesses", null, translations.translationOf(currentWord), null, null, null, 0));
 				}
-				// Used by the bew app
-				case GET_GAME_STATUS -> {
-					String username = params.get("username");
-					String token = params.get("token");
-					if(credentialsBlankOrNull(username, token) || loginHandler.getUserSession(username) == null || !loginHandler.getUserSession(username).getToken().equals(token)) {
-						response.put("details", "Not authorized");
-						attachJson("401", response);
-						break;
-					}
-					boolean isPlaying =  database.isPlaying(username, wordFactory.getCurrentWord());
-					response.put("details", "");
-					response.put("isPlaying", isPlaying);
-					response.put("wordId", isPlaying ? database.getWordId(wordFactory.getCurrentWord()) : -1);
-					attachJson("200", response);
+				String hint = String.valueOf(wordFactory.getHint(sentWord));
+				String details = "Try again!", translatedWord = null;
+				boolean victory = false, wordExists = true;
+				if (sentWord.equals(currentWord)) {
+					translatedWord = translations.translationOf(currentWord);
+					details = "Victory!";
+					victory = true;
+					database.setUserVictory(username, sentWord);
+					database.incrementGameGuesses(username, currentWord, sentWord, hint);
+				} else if (!wordFactory.wordExists(sentWord)) wordExists = false;
+				else database.incrementGameGuesses(username, currentWord, sentWord, hint);
+
+				int guesses = database.getGuessesNumber(username, wordId);
+				if (guesses == 12) {
+					database.closeGame(username, currentWord);
+					database.resetUserStreaks(username);
+					return reply(400, new Guess("Finished guesses", null, translations.translationOf(currentWord), hint, victory, wordExists, 0));
 				}
+				return reply(200, new Guess(details, null, translatedWord, hint, victory, wordExists, 12 - guesses));
+			}
 
-				case WORD_TIMER -> {
-					String username = params.get("username");
-					String token = params.get("token");
-					if(credentialsBlankOrNull(username, token) || loginHandler.getUserSession(username) == null || !loginHandler.getUserSession(username).getToken().equals(token)){
-						response.put("details", "Not authorized");
-						attachJson("401", response);
-						break;
-					}
-					response.put("details", "");
-					response.put("time", wordFactory.getTimeUntilNewWord());
-					attachJson("200", response);
-				}
+			case GET_STATISTICS -> {
+				String username = principal.username();
+				HashMap<String, Object> statistics = database.getUserStatistics(username);
+				if (statistics == null) return reply(500, new Details("Internal error"));
+				return reply(200, new Statistics("", (int) statistics.get("gamesPlayed"), (double) statistics.get("gamesWonPct"),
+						(int) statistics.get("lastStreak"), (int) statistics.get("maxStreak"), (int[]) statistics.get("guessDistribution")));
+			}
 
-				// Returns all the guesses and the hints of the game identified by wordId
-				case GET_GAME_HISTORY -> {
-					String username = params.get("username");
-					String token = params.get("token");
-					int wordId;
-					try {
-						wordId = Integer.parseInt(params.get("wordId"));
-					} catch (Exception ignored) {
-						response.put("details", "wordId not valid");
-						attachJson("400", response);
-						break;
-					}
-					if(credentialsBlankOrNull(username, token) || loginHandler.getUserSession(username) == null || !loginHandler.getUserSession(username).getToken().equals(token)){
-						response.put("details", "Not authorized");
-						attachJson("401", response);
-						break;
-					}
-					String guesses = database.getGuessesHistory(username, wordId);
-					String hints = database.getHintsHistory(username, wordId);
-					response.put("details", "");
-					response.put("guesses", guesses);
-					response.put("hints", hints);
+			case GET_RANKING -> {
+				List<String> ranking = database.getRanking();
+				if (ranking == null) return reply(500, new Details("Internal error"));
+				return reply(200, new Ranking(ranking));
+			}
 
-					attachJson("200",response);
+			case SHARE -> {
+				String username = principal.username();
+				int wordId;
+				try {
+					wordId = Integer.parseInt(params.get("wordId"));
+				} catch (Exception ignored) {
+					return reply(400, new Details("WordId not valid"));
 				}
-
-				case SEND_WORD -> {
-					String username = params.get("username");
-					String token = params.get("token");
-					String sentWord = params.get("word");
-					String currentWord = wordFactory.getCurrentWord();
-					int wordId;
-					try {
-						wordId = Integer.parseInt(params.get("wordId"));
-					} catch (Exception ignored) {
-						response.put("details", "WordId not valid");
-						response.put("code", 100);
-						attachJson("400", response);
-						break;
-					}
-					int userGuesses = database.getGuessesNumber(username, wordId);
-					if(credentialsBlankOrNull(username, token) || loginHandler.getUserSession(username) == null || !loginHandler.getUserSession(username).getToken().equals(token)) {
-						response.put("details", "Not authorized");
-						attachJson("401", response);
-
-					}
-					else if(wordId != database.getWordId(currentWord)) {
-						response.put("details", "Word changed, start a new game");
-						response.put("code", 100);
-						attachJson("400", response);
-					}
-					else if (!database.gameExists(username, wordFactory.getCurrentWord())) {
-						response.put("details", "Bad request - Start a game first");
-						response.put("code", 200);
-						attachJson("400", response);
-					}
-					else if (database.isGameWon(username, wordFactory.getCurrentWord())){
-						response.put("details", "Bad request - Game already won");
-						response.put("code", 300);
-						attachJson("400", response);
-					}
-					else if (userGuesses < 12){
-						if(sentWord.equals(currentWord)) {
-							String translatedWord;
-							try {
-								HashMap<String, Object> translationResponse = httpGet(String.format("https://api.mymemory.translated.net/get?q=%s&langpair=en|it", currentWord));
-								translatedWord = (String) ((HashMap<?, ?>) translationResponse.get("responseData")).get("translatedText");
-							} catch (Exception ignored) {
-								translatedWord = "-";
-							}
-							response.put("translatedWord", translatedWord);
-							response.put("details", "Victory!");
-							response.put("hint", wordFactory.getHint(sentWord));
-							response.put("victory", true);
-							response.put("wordExists", true);
-							database.setUserVictory(username, sentWord);
-							database.incrementGameGuesses(username, currentWord, sentWord, String.valueOf(wordFactory.getHint(sentWord)));
-						} else if (!wordFactory.wordExists(sentWord)) {
-							response.put("details", "Try again!");
-							response.put("hint", wordFactory.getHint(sentWord));
-							response.put("victory", false);
-							response.put("wordExists", false);
-						}
-						else {
-							response.put("details", "Try again!");
-							response.put("hint", wordFactory.getHint(sentWord));
-							response.put("victory", false);
-							response.put("wordExists", true);
-							database.incrementGameGuesses(username, currentWord, sentWord, String.valueOf(wordFactory.getHint(sentWord)));
-						}
-						if (database.getGuessesNumber(username, wordId) == 12) {
-							String translatedWord;
-							try {
-								HashMap<String, Object> translationResponse = httpGet(String.format("https://api.mymemory.translated.net/get?q=%s&langpair=en|it", currentWord));
-								translatedWord = (String) ((HashMap<?, ?>) translationResponse.get("responseData")).get("translatedText");
-							} catch (Exception ignored) {
-								translatedWord = "-";
-							}
-							response.put("translatedWord", translatedWord);
-							response.put("details", "Finished guesses");
-							response.put("remainingGuesses", 0);
-							attachJson("400", response);
-							database.closeGame(username, currentWord);
-							database.resetUserStreaks(username);
-						} else {
-							response.put("remainingGuesses", 12 - database.getGuessesNumber(username, wordId));
-							attachJson("200", response);
-						}
-					} else {
-						String translatedWord;
-						try {
-							HashMap<String, Object> translationResponse = httpGet(String.format("https://api.mymemory.translated.net/get?q=%s&langpair=en|it", currentWord));
-							translatedWord = (String) ((HashMap<?, ?>) translationResponse.get("responseData")).get("translatedText");
-						} catch (Exception ignored) {
-							translatedWord = "-";
-						}
-						response.put("translatedWord", translatedWord);
-						response.put("details", "Finished guesses");
-						response.put("remainingGuesses", 0);
-						attachJson("400", response);
-						database.resetUserStreaks(username);
-					}
+				String word = database.getWord(wordId);
+				if (!word.equals("") && !database.gameExists(username, word) && !database.isGameClosed(username, word))
+					return reply(400, new Details("WordId not valid"));
+
+				SharedGame sharedGame = new SharedGame(username, database.getHintsHistory(username, wordId), database.getGuessesNumber(username, wordId), database.isGameWon(username, word));
+				byte[] buffer = Responses.WRITER.writeValueAsBytes(sharedGame);
+				try (DatagramSocket socket = new DatagramSocket()) {
+					socket.send(new DatagramPacket(buffer, buffer.length, InetAddress.getByName(config.multicastAddress()), config.multicastPort()));
 				}
+				// The multicast does not reach the web clients, nor the hosts outside the local network
+				events.publishShare(sharedGame);
+				return reply(200, new Details("Success"));
+			}
 
-				case GET_STATISTICS -> {
-					String username = params.get("username");
-					String token = params.get("token");
-					HashMap<String, Object> statistics;
-					if(credentialsBlankOrNull(username, token) || loginHandler.getUserSession(username) == null || !loginHandler.getUserSession(username).getToken().equals(token)){
-						response.put("details", "Not authorized");
-						attachJson("401", response);
-						break;
-					}
+			// Used by the CLI client to get the multicast parameters in order to join the multicast group
+			case GET_MULTICAST -> {
+				return reply(200, new Multicast(config.multicastAddress(), config.multicastPort()));
+			}
+			case GET_CURRENT_WORD -> {
+				return reply(200, new CurrentWord(wordFactory.getCurrentWord()));
+			}
+			case GET_METRICS -> {
+				if (principal.session().getLoginType() != WordleDB.Authorization.AUTHORIZED_ADMIN) return reply(401, new Details("Not authorized"));
+				return reply(200, metrics.snapshot());
+			}
+			// The stream of an authenticated user is opened by handleRequest, it never gets here
+			case EVENTS -> {
+				return reply(400, new Details("Event stream not available"));
+			}
+			case BATCH -> {
+				return batch(principal, params);
+			}
+			// As for EVENTS, an upgrade request never gets here
+			case WEBSOCKET -> {
+				return reply(400, new Details("WebSocket upgrade required"));
+			}
+		}
+		return reply(405, new Details("Method not allowed"));
+	}
 
-					statistics = database.getUserStatistics(username);
-					if (statistics != null){
-						attachJson("200", database.getUserStatistics(username));
-						response = statistics;
+	/**
+	 * Executes the operations of a batch in order, as if they were sent one after the other on the connection.
+	 * The operations param is a JSON array of {"method": "GET", "action": "wordTimer", "params": {...}},
+	 * the username and the token of the batch are added to the params of every operation, which are executed
+	 * with the principal of the batch as long as its session is active (e.g. not after a logout in the batch).
+	 * @return the array of the {status, body} of every operation
+	 */
+	private Reply batch(Principal principal, HashMap<String, String> params) throws IOException {
+		String username = params.get("username"), token = params.get("token");
+		JsonNode operations;
+		try {
+			operations = Responses.MAPPER.readTree(params.get("operations"));
+		} catch (IOException e) {
+			return reply(400, new Details("Operations not valid"));
+		}
+		if (!operations.isArray() || operations.isEmpty() || operations.size() > ServerConfig.MAX_BATCH_OPERATIONS)
+			return reply(400, new Details("A batch contains from 1 to " + ServerConfig.MAX_BATCH_OPERATIONS + " operations"));
+
+		List<Reply> replies = new ArrayList<>(operations.size());
+		for (JsonNode operation : operations) {
+			HashMap<String, String> operationParams = new HashMap<>();
+			operation.path("params").fields().forEachRemaining(param -> operationParams.put(param.getKey(), param.getValue().asText()));
+			operationParams.put("username", username);
+			operationParams.put("token", token);
+			Endpoint endpoint = router.resolve(operation.path("method").asText("GET"), operation.path("action").asText(""), operationParams);
+			switch (endpoint) {
+				// Operations that do not produce a single response, or would nest batches
+				// and operations that run on the CredentialsExecutor
+				case BATCH, EVENTS, WEBSOCKET, OPTIONS, LOGIN, REGISTER -> replies.add(reply(400, new Details("Operation not allowed in a batch")));
+				default -> {
+					if (endpoint.authenticated && !loginHandler.isActive(principal.session())) {
+						replies.add(reply(401, new Details("Not authorized")));
+						continue;
 					}
-					else {
-						response.put("details", "Internal error");
-						attachJson("500", response);
+					try {
+						replies.add(execute(endpoint, endpoint.authenticated ? principal : null, operationParams));
+					} catch (Exception e) {
+						PrettyPrinter.prettyPrintln("[ @RException@0 ] - Batch operation " + endpoint + " failed: " + e.getMessage());
+						replies.add(reply(500, new Details("Internal server error")));
 					}
 				}
+			}
+		}
+		return reply(200, replies);
+	}
 
-				case GET_RANKING -> {
-					String username = params.get("username");
-					String token = params.get("token");
-					List<String> ranking;
-					if(credentialsBlankOrNull(username, token) || loginHandler.getUserSession(username) == null || !loginHandler.getUserSession(username).getToken().equals(token)){
-						response.put("details", "Not authorized");
-						attachJson("401", response);
-						break;
-					}
-					ranking = database.getRanking();
-					if (ranking != null){
-						response.put("ranking", ranking);
-						attachJson("200", response);
-					}
-					else {
-						response.put("details", "Internal error");
-						attachJson("500", response);
-					}
-				}
+	/**
+	 * Dispatches the operation and notifies the event streams of the user if its game may have changed
+	 */
+	private Reply execute(Endpoint endpoint, Principal principal, HashMap<String, String> params) throws Exception {
+		Reply reply = dispatch(endpoint, principal, params);
+		if (endpoint == Endpoint.PLAY || endpoint == Endpoint.SEND_WORD || endpoint == Endpoint.LOGOUT) publishGameStatus(principal.username());
+		return reply;
+	}
 
-				case SHARE -> {
-					String username = params.get("username");
-					String token = params.get("token");
-					if(credentialsBlankOrNull(username, token) || loginHandler.getUserSession(username) == null || !loginHandler.getUserSession(username).getToken().equals(token)){
-						response.put("details", "Not authorized");
-						attachJson("401", response);
-						break;
-					}
-					int wordId;
-					try {
-						wordId = Integer.parseInt(params.get("wordId"));
-					} catch (Exception ignored) {
-						response.put("details", "WordId not valid");
-						attachJson("400", response);
-						break;
-					}
-					String word = database.getWord(wordId);
-					if (!word.equals("") && !database.gameExists(username, word) && !database.isGameClosed(username, word)) {
-						response.put("details", "WordId not valid");
-						attachJson("400", response);
-						break;
-					}
+	/**
+	 * Turns the connection into an event stream of the user and sends it the current state,
+	 * the following changes are pushed by the EventBroadcaster until the session of the principal is revoked
+	 */
+	private void openEventStream(Principal principal) {
+		String username = principal.username();
+		ConnectionState connection = (ConnectionState) key.attachment();
+		connection.startStream(request, ResponseHeaders.eventStream());
+		events.subscribe(username, principal.session(), key, connection);
+		boolean isPlaying = database.isPlaying(username, wordFactory.getCurrentWord());
+		events.send(connection, "word", new WordTimer("", wordFactory.getTimeUntilNewWord()));
+		events.send(connection, "game", new GameStatus("", isPlaying, isPlaying ? database.getWordId(wordFactory.getCurrentWord()) : -1));
+		connection.updateInterest(key);
+		key.selector().wakeup();
+	}
 
-					DatagramSocket socket = new DatagramSocket();
-					String gameHints = database.getHintsHistory(username, wordId);
-					int remainingGuesses = database.getGuessesNumber(username, wordId);
-					boolean won = database.isGameWon(username, word);
-					response.put("username", username);
-					response.put("hints", gameHints);
-					response.put("remainingGuesses", remainingGuesses);
-					response.put("won", won);
-					ObjectMapper mapper = new ObjectMapper();
-					String serializedMessage = mapper.writeValueAsString(response);
-					response.clear();
-					byte[] buffer = serializedMessage.getBytes();
-					DatagramPacket packet = new DatagramPacket(buffer, buffer.length, InetAddress.getByName(config.multicastAddress()), config.multicastPort());
-					socket.send(packet);
-					response.put("details", "Success");
-					attachJson("200", response);
-				}
+	/**
+	 * Completes the WebSocket handshake and sends the current top of the ranking,
+	 * the following changes and the shared games are pushed by the EventBroadcaster until the session is revoked
+	 */
+	private void openWebSocket(Principal principal) {
+		ConnectionState connection = (ConnectionState) key.attachment();
+		connection.startWebSocket(request, WebSocketFrames.handshake(request.webSocketKey()));
+		events.subscribeWebSocket(principal.session(), key, connection);
+		List<String> ranking = database.getRanking();
+		if (ranking != null) events.sendWebSocket(connection, "ranking", new Ranking(ranking.subList(0, Math.min(ranking.size(), WordFactory.RANKING_TOP))));
+		connection.updateInterest(key);
+		key.selector().wakeup();
+	}
 
-				// Used by the CLI client to get the multicast parameters in order to join the multicast group
-				case GET_MULTICAST -> {
-					String username = params.get("username");
-					String token = params.get("token");
-					if(credentialsBlankOrNull(username, token) || loginHandler.getUserSession(username) == null || !loginHandler.getUserSession(username).getToken().equals(token)){
-						response.put("details", "Not authorized");
-						attachJson("401", response);
-						break;
-					}
-					response.put("multicastIp", config.multicastAddress());
-					response.put("multicastPort", config.multicastPort());
-					attachJson("200", response);
-				}
-				case GET_CURRENT_WORD -> {
-					response.put("currentWord", wordFactory.getCurrentWord());
-					attachJson("200", response);
-				}
-			}
+	/**
+	 * Sends the game status of username to its event streams, after an operation that may have changed it
+	 */
+	private void publishGameStatus(String username) {
+		if (username == null || !events.hasSubscribers(username)) return;
+		boolean isPlaying = database.isPlaying(username, wordFactory.getCurrentWord());
+		events.publishGame(username, isPlaying, isPlaying ? database.getWordId(wordFactory.getCurrentWord()) : -1);
+	}
 
-			if (endpoint != Endpoint.OPTIONS && config.verbose()) printRequestResponse(String.valueOf(endpoint), request, params, response);
+	private void handleRequest() throws IOException {
+		HashMap<String,String> params = request.params();
+		Principal principal = null;
+		if (endpoint.authenticated) {
+			principal = authenticate(params.get("username"), params.get("token"));
+			if (principal == null) {
+				Reply reply = reply(401, new Details("Not authorized"));
+				attachJson(reply);
+				if (config.verbose()) printRequestResponse(String.valueOf(endpoint), request.toString(), params, reply.body());
+				return;
+			}
+		}
+		if (endpoint == Endpoint.EVENTS) {
+			openEventStream(principal);
+			if (config.verbose()) PrettyPrinter.prettyPrintln("[ @CRequest EVENTS@0 ] - Event stream opened by " + principal.username());
+			return;
+		}
+		if (endpoint == Endpoint.WEBSOCKET && request.webSocketKey() != null) {
+			openWebSocket(principal);
+			if (config.verbose()) PrettyPrinter.prettyPrintln("[ @CRequest WEBSOCKET@0 ] - WebSocket opened by " + principal.username());
+			return;
+		}
+		Reply reply;
+		try {
+			reply = execute(endpoint, principal, params);
 		} catch (Exception e) {
-			try {
-				HashMap<String, Object> response = new HashMap<>();
-				response.put("details", "Internal server error");
-				attachJson("500", response);
-				PrettyPrinter.prettyPrintln("[ @RException@0 -> @M"+ e.getStackTrace()[0].getFileName() + ":@C" + e.getStackTrace()[0].getLineNumber() + "@0 ] - " + e.getMessage());
-				e.printStackTrace();
-			} catch (IOException ignored) {}
+			reply = reply(500, new Details("Internal server error"));
+			PrettyPrinter.prettyPrintln("[ @RException@0 -> @M"+ e.getStackTrace()[0].getFileName() + ":@C" + e.getStackTrace()[0].getLineNumber() + "@0 ] - " + e.getMessage());
+			e.printStackTrace();
 		}
+		attachJson(reply);
+		if (endpoint != Endpoint.OPTIONS && config.verbose()) printRequestResponse(String.valueOf(endpoint), request.toString(), params, reply.body());
 	}
 
 	@Override
 	public void run() {
 		try{
-			BufferedReader reader = new BufferedReader(new StringReader(requestString));
-			String request = reader.readLine();
-			StringBuilder headerBuilder = new StringBuilder();
-			String tmp;
-			StringBuilder bodyBuilder = new StringBuilder();
-			if (request == null || request.contains("/favicon.ico")) return;
-
-			while ((tmp = reader.readLine()) != null && !tmp.equals("")) {
-					headerBuilder.append(tmp).append("\n");
-			}
-			if (request.contains("POST")) {
-				while((tmp = reader.readLine()) != null) {
-					bodyBuilder.append(tmp);
-				}
+			// Every request must be answered, otherwise the next ones on the same connection would never be dispatched
+			if (request.path().contains("/favicon.ico")) {
+				attachJson(reply(404, new Details("Not found")));
+				return;
 			}
-			String body = bodyBuilder.toString();
-			String header = headerBuilder.substring(0, headerBuilder.length()-1);
-			handleRequest(request, header, body);
+			handleRequest();
 		} catch (Exception e){
 			e.printStackTrace();
-		}
-	}
-
-	private static HashMap<String, Object> httpGet(String host) throws IOException {
-		URL url = new URL(host);
-		ObjectMapper mapper = new ObjectMapper();
-		HttpURLConnection request = (HttpURLConnection) url.openConnection();
-		request.setRequestMethod("GET");
-		BufferedReader reader = new BufferedReader(new InputStreamReader(request.getInputStream()));
-		String response = reader.readLine();
-		@SuppressWarnings("unchecked")
-		HashMap<String, Object> responseMap = mapper.readValue(response, HashMap.class);
-		reader.close();
-		return responseMap;
-	}
-
-	public static void sendAttachment(SelectionKey key) {
-		SocketChannel com = (SocketChannel) key.channel();
-		String response = (String) key.attachment();
-		ByteBuffer responseBuffer = ByteBuffer.wrap(response.getBytes());
-		try {
-			do{
-				com.write(responseBuffer);
-			} while (responseBuffer.hasRemaining());
-			key.interestOps(SelectionKey.OP_READ);
-		} catch (IOException e) {
 			try {
-				PrettyPrinter.prettyPrintln("[ @RError thread " + Thread.currentThread().getName().toUpperCase() + "@0 ] - IOException thrown while responding to" + (com.getRemoteAddress().toString().substring(1)));
-				com.close();
-				key.cancel();
-			} catch (Exception ignored) {}
+				attachJson(reply(400, new Details("Bad request")));
+			} catch (IOException ignored) {}
 		}
 	}
 
 	private String generateSessionToken(String username) {
 		SecureRandom random = new SecureRandom();
-		MessageDigest digest = null;
-		byte[] hash;
 		String hashString;
 		String time = String.valueOf(System.currentTimeMillis());
 		String rand = String.valueOf((int) (random.nextDouble()*100000));
 		String toHash = time + username + rand;
 		int low, high;
-		try {
-			digest = MessageDigest.getInstance("SHA-256");
-		} catch (NoSuchAlgorithmException ignored) {}
-		if (digest != null){
-			hash = digest.digest(toHash.getBytes(StandardCharsets.UTF_8));
-			StringBuilder hexString = new StringBuilder(2 * hash.length);
-			for (byte b : hash) {
-				String hex = Integer.toHexString(0xff & b);
-				if (hex.length() == 1) {
-					hexString.append('0');
-				}
-				hexString.append(hex);
-			}
-			hashString = hexString.toString();
-			low = random.nextInt((hashString.length() - 1)/ 2);
-			high = low + (hashString.length() / 2);
-			return hashString.substring(low, high);
-		}
-		return "";
-	}
-
-	private HashMap<String,String> getParams(String requestParams, String header, String bodyParams) {
-		HashMap<String, String> requestParamsMap = new HashMap<>();
-		HashMap<String, String> bodyParamsMap = new HashMap<>();
-		HashMap<String, String> params = new HashMap<>();
-
-		String queryString = requestParams.substring(requestParams.indexOf("?") + 1);
-		String[] splitParams = queryString.split("&");
-		for (String param: splitParams) {
-			if (param.split("=").length == 2)
-				requestParamsMap.put(param.split("=")[0], URLDecoder.decode(param.split("=")[1], StandardCharsets.UTF_8));
-		}
-		splitParams = header.split("\n");
-		for (String param: splitParams) if (param.toLowerCase().contains("authorization:")) requestParamsMap.put("token", URLDecoder.decode(param.split(": ")[1].replaceAll("Bearer ", ""), StandardCharsets.UTF_8));
-		splitParams = bodyParams.split("&");
-		for (String param: splitParams) {
-			if (param.split("=").length == 2)
-				bodyParamsMap.put(param.split("=")[0], URLDecoder.decode(param.split("=")[1], StandardCharsets.UTF_8));
-		}
-		params.putAll(requestParamsMap);
-		params.putAll(bodyParamsMap);
-		return params;
+		hashString = PasswordHasher.sha256Hex(toHash);
+		low = random.nextInt((hashString.length() - 1)/ 2);
+		high = low + (hashString.length() / 2);
+		return hashString.substring(low, high);
 	}
-	private Endpoint getEndpoint(String request, HashMap<String, String> params) {
-		String action;
-		String requestType = request.split(" ")[0];
-
-		try {
-			String rawAction = request.split(" ")[1].split("/")[1];
-			if (rawAction.contains("?"))
-				action = rawAction.substring(0, rawAction.indexOf("?"));
-			else action = rawAction;
-		} catch (Exception ignored) { return Endpoint.NOT_SUPPORTED; }
-
-		if (requestType.equals("OPTIONS")) return Endpoint.OPTIONS;
-
-		if (action.equals("register") && requestType.equals("POST"))
-			if (params.containsKey("username") && params.containsKey("password")) return Endpoint.REGISTER;
 
-		if (action.equals("login") && requestType.equals("POST"))
-			if (params.containsKey("username") && params.containsKey("password")) return Endpoint.LOGIN;
-
-		if (action.equals("verify") && requestType.equals("GET"))
-			if (params.containsKey("username") && params.containsKey("token")) return Endpoint.VERIFY;
-
-		if (action.equals("logout") && requestType.equals("POST"))
-			if (params.containsKey("username") && params.containsKey("token")) return Endpoint.LOGOUT;
-
-		if (action.equals("playWordle") && requestType.equals("POST"))
-			if (params.containsKey("username") && params.containsKey("token")) return Endpoint.PLAY;
-
-		if(action.equals("sendWord") && requestType.equals("POST"))
-			if (params.containsKey("username") && params.containsKey("token") && params.containsKey("word") && params.containsKey("wordId")) return Endpoint.SEND_WORD;
-
-		if (action.equals("getGameStatus") && requestType.equals("GET"))
-			if (params.containsKey("username") && params.containsKey("token")) return Endpoint.GET_GAME_STATUS;
-
-		if (action.equals("getGameHistory") && requestType.equals("GET"))
-			if (params.containsKey("username") && params.containsKey("token") && params.containsKey("wordId")) return Endpoint.GET_GAME_HISTORY;
-
-		if(action.equals("showMeRanking") && requestType.equals("GET"))
-			if (params.containsKey("username") && params.containsKey("token")) return Endpoint.GET_RANKING;
-
-		if(action.equals("getMulticast") && requestType.equals("GET"))
-			if (params.containsKey("username") && params.containsKey("token")) return Endpoint.GET_MULTICAST;
-
-		if (action.equals("wordTimer") && requestType.equals("GET"))
-			if (params.containsKey("username") && params.containsKey("token")) return Endpoint.WORD_TIMER;
-
-		if(action.equals("sendMeStatistics") && requestType.equals("GET"))
-			if (params.containsKey("username") && params.containsKey("token")) return Endpoint.GET_STATISTICS;
-
-		if(action.equals("share") && requestType.equals("POST"))
-			if (params.containsKey("username") && params.containsKey("token") && params.containsKey("wordId")) return Endpoint.SHARE;
-
-		if(action.equals("getCurrentWord") && requestType.equals("GET"))
-			if(config.debug()) return Endpoint.GET_CURRENT_WORD;
-
-
-		return Endpoint.NOT_SUPPORTED;
-	}
-	private void attachJson(String status, HashMap<String, Object> response) throws IOException {
-		ObjectMapper mapper = new ObjectMapper();
-		String serializedOutput;
-		mapper.enable(SerializationFeature.INDENT_OUTPUT);
-		serializedOutput = mapper.writeValueAsString(response);
-		String responseString = String.format("""
-				HTTP/1.1 %s OK\r
-				Server: wordle-project\r
-				Date: %s\r
-				Access-Control-Allow-Origin: *\r
-				Access-Control-Allow-Methods: *\r
-				Access-Control-Allow-Headers: *\r
-				Content-Type: application/json; charset=utf-8\r
-				Content-Length: %d\r
-				\r
-				%s\r
-				\r
-								
-				""", status, new Date(), serializedOutput.length(), serializedOutput);
-		key.attach(responseString);
-		key.interestOps(SelectionKey.OP_WRITE);
-		selector.wakeup();
+	private void attachJson(Reply reply) throws IOException {
+		ConnectionState connection = (ConnectionState) key.attachment();
+		// The same reply, encoded in the format of the port the request arrived on
+		if (request.binary()) connection.setBinaryResponse(request, reply.status(), reply.body());
+		else connection.setResponse(request, reply.status(), Responses.WRITER, reply.body());
+		connection.updateInterest(key);
+		// The key belongs to the selector of the reactor serving the connection
+		key.selector().wakeup();
 	}
 }
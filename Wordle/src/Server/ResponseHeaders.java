@@ -0,0 +1,155 @@
+package Server;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Status line and headers of the JSON responses, encoded once.
+ * Every header is constant except Date, which a daemon ticker refreshes once a second for all
+ * the workers, and Content-Length, which is the only part written for each response.
+ */
+public class ResponseHeaders {
+	private static final int[] STATUSES = {200, 400, 401, 404, 405, 409, 500, 503};
+	private static final byte[][] STATUS_LINES = new byte[600][];
+	private static final byte[] DATE_PREFIX = ascii("Date: ");
+	private static final byte[] STATIC_HEADERS = ascii("""
+			\r
+			Access-Control-Allow-Origin: *\r
+			Access-Control-Allow-Methods: *\r
+			Access-Control-Allow-Headers: *\r
+			Content-Type: application/json; charset=utf-8\r
+			Content-Length:\s""");
+	private static final byte[] HEADERS_END = ascii("\r\n\r\n");
+	private static volatile byte[] date;
+	// The body of the responses to the shed requests, also sent on the binary port
+	static final Responses.Details OVERLOADED = new Responses.Details("Server overloaded, retry later");
+	// Everything after the Date header of the response to a shed request
+	private static final byte[] SERVICE_UNAVAILABLE = serviceUnavailableTail();
+	// No Content-Length: the event stream lasts until the connection is closed
+	private static final ByteBuffer EVENT_STREAM = ByteBuffer.wrap(ascii(new String(statusLine(200), StandardCharsets.US_ASCII) + """
+			Access-Control-Allow-Origin: *\r
+			Content-Type: text/event-stream; charset=utf-8\r
+			Cache-Control: no-cache\r
+			\r
+			""")).asReadOnlyBuffer();
+
+	static {
+		for (int status : STATUSES) STATUS_LINES[status] = statusLine(status);
+		date = currentDate();
+		ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "date-ticker");
+			thread.setDaemon(true);
+			return thread;
+		});
+		ticker.scheduleAtFixedRate(() -> date = currentDate(), 1, 1, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * The headers following Date and the body of the response sent when a request is shed, serialized once:
+	 * the response carries the same headers as the others, plus Retry-After
+	 */
+	private static byte[] serviceUnavailableTail() {
+		byte[] body;
+		try {
+			body = Responses.WRITER.writeValueAsBytes(OVERLOADED);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException(e);
+		}
+		byte[] headers = ascii("\r\nRetry-After: 1" + new String(STATIC_HEADERS, StandardCharsets.US_ASCII) + body.length
+				+ new String(HEADERS_END, StandardCharsets.US_ASCII));
+		return ByteBuffer.allocate(headers.length + body.length).put(headers).put(body).array();
+	}
+
+	/**
+	 * @return a 503 response with Retry-After, ready to be written: only the status line and the cached Date
+	 * are copied in front of the bytes serialized once, nothing is serialized when a request is shed
+	 */
+	public static ByteBuffer serviceUnavailable() {
+		byte[] line = statusLineOf(503);
+		byte[] now = date;
+		return ByteBuffer.allocate(line.length + DATE_PREFIX.length + now.length + SERVICE_UNAVAILABLE.length)
+				.put(line).put(DATE_PREFIX).put(now).put(SERVICE_UNAVAILABLE).flip();
+	}
+
+	/**
+	 * @return the headers opening a text/event-stream response. Every call returns an independent view of the same bytes.
+	 */
+	public static ByteBuffer eventStream() {
+		return EVENT_STREAM.duplicate();
+	}
+
+	private static byte[] ascii(String string) {
+		return string.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	private static byte[] currentDate() {
+		return ascii(DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC)));
+	}
+
+	private static byte[] statusLine(int status) {
+		String reason = switch (status) {
+			case 200 -> "OK";
+			case 400 -> "Bad Request";
+			case 401 -> "Unauthorized";
+			case 404 -> "Not Found";
+			case 405 -> "Method Not Allowed";
+			case 409 -> "Conflict";
+			case 500 -> "Internal Server Error";
+			case 503 -> "Service Unavailable";
+			default -> "Unknown";
+		};
+		return ascii("HTTP/1.1 " + status + " " + reason + "\r\nServer: wordle-project\r\n");
+	}
+
+	private static byte[] statusLineOf(int status) {
+		byte[] line = status >= 0 && status < STATUS_LINES.length ? STATUS_LINES[status] : null;
+		return line != null ? line : statusLine(status);
+	}
+
+	private static int digits(int n) {
+		int digits = 1;
+		while (n >= 10) {
+			n /= 10;
+			digits++;
+		}
+		return digits;
+	}
+
+	/**
+	 * Writes the status line and the headers so that they end right before the body.
+	 * The position of the buffer is not modified.
+	 * @param end the index of the first byte of the body
+	 * @param contentLength the length of the body
+	 * @return the index of the first byte of the status line
+	 * @throws IndexOutOfBoundsException if there is not enough room before end
+	 */
+	public static int writeBefore(ByteBuffer buffer, int end, int status, int contentLength) {
+		byte[] line = statusLineOf(status);
+		byte[] now = date;
+		int digits = digits(contentLength);
+		int start = end - (line.length + DATE_PREFIX.length + now.length + STATIC_HEADERS.length + digits + HEADERS_END.length);
+		int index = start;
+		buffer.put(index, line);
+		index += line.length;
+		buffer.put(index, DATE_PREFIX);
+		index += DATE_PREFIX.length;
+		buffer.put(index, now);
+		index += now.length;
+		buffer.put(index, STATIC_HEADERS);
+		index += STATIC_HEADERS.length;
+		for (int i = index + digits - 1; i >= index; i--) {
+			buffer.put(i, (byte) ('0' + contentLength % 10));
+			contentLength /= 10;
+		}
+		buffer.put(index + digits, HEADERS_END);
+		return start;
+	}
+}
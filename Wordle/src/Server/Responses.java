@@ -0,0 +1,64 @@
+package Server;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.util.List;
+
+/**
+ * Bodies of the responses sent by the server, one record per kind of response.
+ * Null components are not serialized, so every record produces the same JSON keys the
+ * clients received when the responses were built as maps.
+ */
+public class Responses {
+	/**
+	 * Shared by all the request handlers: ObjectMapper and ObjectWriter are thread safe once configured,
+	 * and the serializers of the records are resolved only the first time they are written
+	 */
+	public static final ObjectMapper MAPPER = new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+	public static final ObjectWriter WRITER = MAPPER.writer();
+
+	/**
+	 * The outcome of a request: the HTTP status and the body to serialize
+	 */
+	public record Reply(int status, Object body) {}
+
+	public record Details(String details) {}
+
+	public record Login(String details, String token, String multicastIp, Integer multicastPort) {}
+
+	public record Session(String details, String token) {}
+
+	public record Game(String details, Integer wordId, Boolean victory) {}
+
+	public record GameStatus(String details, boolean isPlaying, int wordId) {}
+
+	public record WordTimer(String details, long time) {}
+
+	public record GameHistory(String details, String guesses, String hints) {}
+
+	public record Guess(String details, Integer code, String translatedWord, String hint, Boolean victory, Boolean wordExists, Integer remainingGuesses) {
+		public static Guess error(String details, int code) {
+			return new Guess(details, code, null, null, null, null, null);
+		}
+	}
+
+	public record Statistics(String details, int gamesPlayed, double gamesWonPct, int lastStreak, int maxStreak, int[] guessDistribution) {}
+
+	public record Ranking(List<String> ranking) {}
+
+	public record Multicast(String multicastIp, int multicastPort) {}
+
+	public record CurrentWord(String currentWord) {}
+
+	/**
+	 * Message sent to the multicast group when a user shares a game
+	 */
+	public record SharedGame(String username, String hints, int remainingGuesses, boolean won) {}
+
+	/**
+	 * Message pushed to the WebSocket clients, type tells how to read data (e.g. "ranking" with a Ranking)
+	 */
+	public record Notification(String type, Object data) {}
+}
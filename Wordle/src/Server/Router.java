@@ -0,0 +1,44 @@
+package Server;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Routing table built once at startup: it maps (method, action) to the Endpoint that serves it
+ * and checks the parameters the endpoint requires, so that dispatching a request is a couple of hash lookups.
+ */
+public class Router {
+	public record Route(Endpoint endpoint, String[] requiredParams) {}
+
+	// method -> action -> route
+	private final HashMap<String, HashMap<String, Route>> routes;
+
+	public Router() {
+		this.routes = new HashMap<>();
+	}
+
+	/**
+	 * @param method the HTTP method
+	 * @param action the first segment of the path, e.g. "login" for /login
+	 * @param endpoint the endpoint that serves the requests
+	 * @param requiredParams the parameters that must be present, otherwise the request is not supported
+	 */
+	public void register(String method, String action, Endpoint endpoint, String... requiredParams) {
+		routes.computeIfAbsent(method, k -> new HashMap<>()).put(action, new Route(endpoint, requiredParams));
+	}
+
+	/**
+	 * @return the endpoint that serves the request, NOT_SUPPORTED if there isn't one or a required parameter is missing
+	 */
+	public Endpoint resolve(String method, String action, Map<String, String> params) {
+		if (action.isEmpty()) return Endpoint.NOT_SUPPORTED;
+		// CORS preflight requests are answered for every path
+		if (method.equals("OPTIONS")) return Endpoint.OPTIONS;
+		HashMap<String, Route> methodRoutes = routes.get(method);
+		Route route = methodRoutes == null ? null : methodRoutes.get(action);
+		if (route == null) return Endpoint.NOT_SUPPORTED;
+		for (String param : route.requiredParams())
+			if (!params.containsKey(param)) return Endpoint.NOT_SUPPORTED;
+		return route.endpoint();
+	}
+}
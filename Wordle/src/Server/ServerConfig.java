@@ -7,8 +7,44 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.jsontype.impl.StdTypeResolverBuilder;
 
 public record ServerConfig(int tcpPort, int rmiPort, int multicastPort, String multicastAddress, int corePoolSize, int secretWordTimeout, boolean verbose, String sqliteDatabasePath, boolean autoCreateDatabase,
-						   boolean autoCommitDatabase, String wordsFilePath, boolean useJsonDatabase, String jsonDatabasePath, boolean debug) {
+						   boolean autoCommitDatabase, String wordsFilePath, boolean useJsonDatabase, String jsonDatabasePath, boolean debug,
+						   int bufferPoolSize, int reactorThreads, ExecutionMode executionMode, int maxPoolSize, int requestQueueDepth,
+						   TranslationBackend translationProvider, String translationFilePath, int binaryPort, int readIdleTimeout, int writeStallTimeout, int connectionLifetime, long sessionIdleTimeout, long sessionMaxAge, int maxSessionsPerUser, int credentialsThreads, int credentialsQueueDepth, int sqliteReaders, SqliteSynchronous sqliteSynchronous, int sqliteCacheSize, long sqliteMmapSize) {
+	/**
+	 * How the request handlers are executed: on a pool of platform threads or on a virtual thread each
+	 */
+	public enum ExecutionMode {
+		PLATFORM,
+		VIRTUAL
+	}
+
+	/**
+	 * The backend translating the secret words, see TranslationService
+	 */
+	public enum TranslationBackend {
+		MYMEMORY,
+		FILE,
+		NONE
+	}
+
+	/**
+	 * The values of PRAGMA synchronous for the SQLite database, see SqlitePool
+	 */
+	public enum SqliteSynchronous {
+		OFF,
+		NORMAL,
+		FULL,
+		EXTRA
+	}
+
 	public static int BUFFER_SIZE = 4096;
+	public static int MAX_REQUEST_SIZE = 64 * 1024;
+	public static int MAX_PIPELINED_REQUESTS = 16;
+	public static int MAX_PUSHED_MESSAGES = 64;
+	public static int MAX_BATCH_OPERATIONS = 16;
+	// Resolution of the connection timeouts and number of buckets of the timing wheel tracking them
+	public static int TIMEOUT_TICK_MILLIS = 1000;
+	public static int TIMING_WHEEL_SIZE = 512;
 	public ServerConfig(@JsonProperty(value = "tcpPort", required = true) int tcpPort,
 						@JsonProperty(value = "rmiPort", required = true) int rmiPort,
 						@JsonProperty(value = "multicastPort", required = true) int multicastPort,
@@ -22,7 +58,27 @@ public record ServerConfig(int tcpPort, int rmiPort, int multicastPort, String m
 						@JsonProperty(value = "wordsFilePath", required = true) String wordsFilePath,
 						@JsonProperty(value = "useJsonDatabase", required = true) boolean useJsonDatabase,
 						@JsonProperty(value = "jsonDatabasePath", required = true) String jsonDatabasePath,
-						@JsonProperty(value = "debug", required = true) boolean debug) {
+						@JsonProperty(value = "debug", required = true) boolean debug,
+						@JsonProperty(value = "bufferPoolSize") int bufferPoolSize,
+						@JsonProperty(value = "reactorThreads") int reactorThreads,
+						@JsonProperty(value = "executionMode") ExecutionMode executionMode,
+						@JsonProperty(value = "maxPoolSize") int maxPoolSize,
+						@JsonProperty(value = "requestQueueDepth") int requestQueueDepth,
+						@JsonProperty(value = "translationProvider") TranslationBackend translationProvider,
+						@JsonProperty(value = "translationFilePath") String translationFilePath,
+						@JsonProperty(value = "binaryPort") int binaryPort,
+						@JsonProperty(value = "readIdleTimeout") int readIdleTimeout,
+						@JsonProperty(value = "writeStallTimeout") int writeStallTimeout,
+						@JsonProperty(value = "connectionLifetime") int connectionLifetime,
+						@JsonProperty(value = "sessionIdleTimeout") long sessionIdleTimeout,
+						@JsonProperty(value = "sessionMaxAge") long sessionMaxAge,
+						@JsonProperty(value = "maxSessionsPerUser") int maxSessionsPerUser,
+						@JsonProperty(value = "credentialsThreads") int credentialsThreads,
+						@JsonProperty(value = "credentialsQueueDepth") int credentialsQueueDepth,
+						@JsonProperty(value = "sqliteReaders") int sqliteReaders,
+						@JsonProperty(value = "sqliteSynchronous") SqliteSynchronous sqliteSynchronous,
+						@JsonProperty(value = "sqliteCacheSize") int sqliteCacheSize,
+						@JsonProperty(value = "sqliteMmapSize") long sqliteMmapSize) {
 		this.tcpPort = tcpPort;
 		this.rmiPort = rmiPort;
 		this.multicastPort = multicastPort;
@@ -37,6 +93,26 @@ public record ServerConfig(int tcpPort, int rmiPort, int multicastPort, String m
 		this.useJsonDatabase = useJsonDatabase;
 		this.jsonDatabasePath = jsonDatabasePath;
 		this.debug = debug;
+		this.bufferPoolSize = bufferPoolSize > 0 ? bufferPoolSize : 1024;
+		this.reactorThreads = reactorThreads > 0 ? reactorThreads : Runtime.getRuntime().availableProcessors();
+		this.executionMode = executionMode != null ? executionMode : ExecutionMode.PLATFORM;
+		this.maxPoolSize = maxPoolSize > 0 ? Math.max(maxPoolSize, this.corePoolSize) : Math.max(this.corePoolSize, 64);
+		this.requestQueueDepth = requestQueueDepth > 0 ? requestQueueDepth : 256;
+		this.translationProvider = translationProvider != null ? translationProvider : TranslationBackend.MYMEMORY;
+		this.translationFilePath = translationFilePath;
+		this.binaryPort = Math.max(binaryPort, 0);
+		this.readIdleTimeout = readIdleTimeout != 0 ? Math.max(readIdleTimeout, -1) : 300000;
+		this.writeStallTimeout = writeStallTimeout != 0 ? Math.max(writeStallTimeout, -1) : 30000;
+		this.connectionLifetime = Math.max(connectionLifetime, 0);
+		this.sessionIdleTimeout = sessionIdleTimeout != 0 ? Math.max(sessionIdleTimeout, -1) : 30 * 60 * 1000;
+		this.sessionMaxAge = sessionMaxAge != 0 ? Math.max(sessionMaxAge, -1) : 24 * 60 * 60 * 1000;
+		this.maxSessionsPerUser = maxSessionsPerUser > 0 ? maxSessionsPerUser : 1;
+		this.credentialsThreads = credentialsThreads > 0 ? credentialsThreads : Math.max(Runtime.getRuntime().availableProcessors() / 2, 1);
+		this.credentialsQueueDepth = credentialsQueueDepth > 0 ? credentialsQueueDepth : 64;
+		this.sqliteReaders = sqliteReaders > 0 ? sqliteReaders : 4;
+		this.sqliteSynchronous = sqliteSynchronous != null ? sqliteSynchronous : SqliteSynchronous.NORMAL;
+		this.sqliteCacheSize = sqliteCacheSize > 0 ? sqliteCacheSize : 8192;
+		this.sqliteMmapSize = sqliteMmapSize != 0 ? Math.max(sqliteMmapSize, -1) : 64L * 1024 * 1024;
 	}
 
 	@Override
@@ -0,0 +1,8 @@
+package Server;
+
+/**
+ * The components shared by the reactors and the request handlers, created once by ServerMain
+ */
+public record ServerContext(ServerConfig config, WordleDB database, LoginHandler loginHandler, WordFactory wordFactory, TranslationService translations, EventBroadcaster events,
+						   ServerMetrics metrics, Router router, BufferPool bufferPool, RequestExecutor executor, CredentialsExecutor credentials) {
+}
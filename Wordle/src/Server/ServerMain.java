@@ -5,7 +5,6 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.*;
-import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
@@ -15,8 +14,6 @@ import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
 import java.util.*;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import CommonUtils.PrettyPrinter;
@@ -28,6 +25,19 @@ public class ServerMain {
 		return mapper.readValue(new File(path), ServerConfig.class);
 	}
 
+	/**
+	 * Picks the reactor with the fewest connections, starting the scan from a rotating index so that
+	 * equally loaded reactors are chosen round-robin
+	 */
+	private static Reactor nextReactor(Reactor[] reactors, int start) {
+		Reactor chosen = reactors[start % reactors.length];
+		for (int i = 1; i < reactors.length; i++) {
+			Reactor reactor = reactors[(start + i) % reactors.length];
+			if (reactor.connections() < chosen.connections()) chosen = reactor;
+		}
+		return chosen;
+	}
+
 	public static void main(String[] args) {
 
 		ServerConfig serverConfig = null;
@@ -66,10 +76,14 @@ public class ServerMain {
 			PrettyPrinter.prettyPrintln("@C" + serverConfig.toString() + "@0");
 			PrettyPrinter.prettyPrintln("@M~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~@0");
 
-			WordleDB database = new WordleDB(serverConfig.useJsonDatabase() ? serverConfig.jsonDatabasePath() : serverConfig.sqliteDatabasePath(), serverConfig.autoCreateDatabase(), serverConfig.autoCommitDatabase(), serverConfig.useJsonDatabase() ? WordleDB.DatabaseType.JSON : WordleDB.DatabaseType.SQLITE);
+			WordleDB database = new WordleDB(serverConfig.useJsonDatabase() ? serverConfig.jsonDatabasePath() : serverConfig.sqliteDatabasePath(), serverConfig.autoCreateDatabase(), serverConfig.autoCommitDatabase(), serverConfig.useJsonDatabase() ? WordleDB.DatabaseType.JSON : WordleDB.DatabaseType.SQLITE,
+					new SqlitePool.Tuning(serverConfig.sqliteReaders(), serverConfig.sqliteSynchronous(), serverConfig.sqliteCacheSize(), serverConfig.sqliteMmapSize()));
 			PrettyPrinter.prettyPrintln("[ @GInfo@0 ] - Database ready");
 
-			RemoteRegistration regService = new RemoteRegistration(database);
+			ServerMetrics metrics = new ServerMetrics();
+			database.registerMetrics(metrics);
+			CredentialsExecutor credentials = new CredentialsExecutor(serverConfig, metrics);
+			RemoteRegistration regService = new RemoteRegistration(database, credentials);
 			RemoteRegistrationInterface registrationStub = (RemoteRegistrationInterface) UnicastRemoteObject.exportObject(regService, 0); // 0 -> dynamically assign the port
 			RankingChanged rankingService = new RankingChanged();
 			RankingChangedInterface rankingStub = (RankingChangedInterface) UnicastRemoteObject.exportObject(rankingService, 0);
@@ -78,42 +92,91 @@ public class ServerMain {
 			r.bind("REGISTRATION", registrationStub);
 			r.bind("RANKING", rankingStub);
 			PrettyPrinter.prettyPrintln("[ @GInfo@0 ] - RMI ready for incoming connections");
-			ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newCachedThreadPool();
-
-			executor.setCorePoolSize(serverConfig.corePoolSize());
-			PrettyPrinter.prettyPrintln("[ @GInfo@0 ] - ThreadPool alive");
-
-			LoginHandler loginHandler = new LoginHandler();
-
 
-			WordFactory wordFactory = new WordFactory(serverConfig.secretWordTimeout(), words, database, rankingService);
+			LoginHandler loginHandler = new LoginHandler(serverConfig, metrics);
+			RequestExecutor executor = new RequestExecutor(serverConfig, metrics);
+			PrettyPrinter.prettyPrintln("[ @GInfo@0 ] - Request executor alive (" + executor.mode() + " threads)");
+			BufferPool bufferPool = new BufferPool(serverConfig.bufferPoolSize(), ServerConfig.BUFFER_SIZE);
+			metrics.registerGauge("bufferPool.capacity", bufferPool::capacity);
+			metrics.registerGauge("bufferPool.allocated", bufferPool::allocated);
+			metrics.registerGauge("bufferPool.leased", bufferPool::leased);
+			metrics.registerGauge("bufferPool.misses", bufferPool::misses);
+
+			Router router = new Router();
+			router.register("POST", "register", Endpoint.REGISTER, "username", "password");
+			router.register("POST", "login", Endpoint.LOGIN, "username", "password");
+			router.register("GET", "verify", Endpoint.VERIFY, "username", "token");
+			router.register("POST", "logout", Endpoint.LOGOUT, "username", "token");
+			router.register("POST", "playWordle", Endpoint.PLAY, "username", "token");
+			router.register("POST", "sendWord", Endpoint.SEND_WORD, "username", "token", "word", "wordId");
+			router.register("GET", "getGameStatus", Endpoint.GET_GAME_STATUS, "username", "token");
+			router.register("GET", "getGameHistory", Endpoint.GET_GAME_HISTORY, "username", "token", "wordId");
+			router.register("GET", "showMeRanking", Endpoint.GET_RANKING, "username", "token");
+			router.register("GET", "getMulticast", Endpoint.GET_MULTICAST, "username", "token");
+			router.register("GET", "wordTimer", Endpoint.WORD_TIMER, "username", "token");
+			router.register("GET", "sendMeStatistics", Endpoint.GET_STATISTICS, "username", "token");
+			// EventSource cannot set headers, so the token is a query parameter as for the other GET endpoints
+			router.register("GET", "events", Endpoint.EVENTS, "username", "token");
+			router.register("GET", "ws", Endpoint.WEBSOCKET, "username", "token");
+			router.register("POST", "batch", Endpoint.BATCH, "username", "token", "operations");
+			router.register("POST", "share", Endpoint.SHARE, "username", "token", "wordId");
+			// The counters describe the internals of the server, only the administrators can read them
+			router.register("GET", "getMetrics", Endpoint.GET_METRICS, "username", "token");
+			if (serverConfig.debug()) router.register("GET", "getCurrentWord", Endpoint.GET_CURRENT_WORD);
+
+
+			TranslationService translations = new TranslationService(TranslationService.providerOf(serverConfig), metrics);
+			EventBroadcaster events = new EventBroadcaster(metrics);
+			WordFactory wordFactory = new WordFactory(serverConfig.secretWordTimeout(), words, database, rankingService, translations, events);
 			Thread wordFactoryThread = new Thread(wordFactory);
 			wordFactoryThread.setDaemon(true);
 			wordFactoryThread.start();
 
+			ServerContext context = new ServerContext(serverConfig, database, loginHandler, wordFactory, translations, events, metrics, router, bufferPool, executor, credentials);
+			Reactor[] reactors = new Reactor[serverConfig.reactorThreads()];
+			Thread[] reactorThreads = new Thread[reactors.length];
+			for (int i = 0; i < reactors.length; i++) {
+				Reactor reactor = new Reactor(context);
+				reactors[i] = reactor;
+				reactorThreads[i] = new Thread(reactor, "reactor-" + i);
+				reactorThreads[i].start();
+				metrics.registerGauge("reactor." + i + ".connections", reactor::connections);
+			}
+			PrettyPrinter.prettyPrintln("[ @GInfo@0 ] - " + reactors.length + " reactors ready");
+
+			// The main thread is the acceptor, its selector only waits for incoming connections
 			Selector selector = Selector.open();
 			ServerSocketChannel serverSocketChannel = ServerSocketChannel.open();
 			ServerSocket serverSocket = serverSocketChannel.socket();
 			serverSocket.bind(new InetSocketAddress(serverConfig.tcpPort()));
 			serverSocketChannel.configureBlocking(false);
 
-			serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);
+			// The attachment tells whether the connections accepted by a channel speak the binary protocol
+			serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT, false);
 			PrettyPrinter.prettyPrintln("[ @GInfo@0 ] - Listening on port " + serverConfig.tcpPort());
+			if (serverConfig.binaryPort() > 0) {
+				ServerSocketChannel binarySocketChannel = ServerSocketChannel.open();
+				binarySocketChannel.bind(new InetSocketAddress(serverConfig.binaryPort()));
+				binarySocketChannel.configureBlocking(false);
+				binarySocketChannel.register(selector, SelectionKey.OP_ACCEPT, true);
+				PrettyPrinter.prettyPrintln("[ @GInfo@0 ] - Listening for the binary protocol on port " + serverConfig.binaryPort());
+			}
 			AtomicBoolean mainRunning = new AtomicBoolean(true);
 			Object shutdownSync = new Object();
 			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
 				executor.shutdown();
+				credentials.shutdown();
 				PrettyPrinter.prettyPrintln("[ @GInfo@0 ] - Threadpool closed");
 
 				if (wordFactoryThread.isAlive()) {
 					wordFactory.setIsRunning(false);
 					wordFactoryThread.interrupt();
 				}
-				Iterator<SelectionKey> iterator = new HashSet<>(selector.keys()).iterator();
-				while (iterator.hasNext()) {
-					SelectionKey key = iterator.next();
-					iterator.remove();
-					key.cancel();
+				for (Reactor reactor : reactors) reactor.shutdown();
+				for (Thread reactorThread : reactorThreads) {
+					try {
+						reactorThread.join(1000);
+					} catch (InterruptedException ignored) {}
 				}
 				PrettyPrinter.prettyPrintln("[ @GInfo@0 ] - All keys cancelled");
 				database.closeDatabase();
@@ -130,42 +193,26 @@ public class ServerMain {
 
 			}));
 
+			int nextReactor = 0;
 			while(mainRunning.get()){
 				 if (selector.select() == 0)
                     continue;
-				Set<SelectionKey> keys = selector.selectedKeys();
-				Iterator<SelectionKey> iterator = keys.iterator();
-				while(iterator.hasNext()) {
-					SelectionKey selectedKey = iterator.next();
-					iterator.remove();
-					if(!selectedKey.isValid()) {
-						selectedKey.channel().close();
-						selectedKey.cancel();
-						continue;
-					}
-					if (selectedKey.isAcceptable()) {
-						ServerSocketChannel server = (ServerSocketChannel) selectedKey.channel();
-						SocketChannel com = server.accept();
-						if (com == null) continue;
-						com.configureBlocking(false);
-						PrettyPrinter.prettyPrintln("[ @GInfo@0 ] - Connected client " + (com.getRemoteAddress().toString().substring(1)));
-						com.register(selector, SelectionKey.OP_READ);
-					} else if (selectedKey.isReadable()) {
-						ByteBuffer buffer = ByteBuffer.allocate(ServerConfig.BUFFER_SIZE);
-						SocketChannel com = (SocketChannel) selectedKey.channel();
-						int bytesRead = com.read(buffer);
-						if(bytesRead == -1) {
-							PrettyPrinter.prettyPrintln("[ @GInfo@0 ] - Disconnected client " + (com.getRemoteAddress().toString().substring(1)));
-							selectedKey.cancel();
-							try {
-								com.close();
-							} catch (Exception ignored) {}
+				for (SelectionKey acceptKey : selector.selectedKeys()) {
+					ServerSocketChannel listener = (ServerSocketChannel) acceptKey.channel();
+					boolean binary = (boolean) acceptKey.attachment();
+					// Drain the backlog: a burst of connections is accepted in a single wakeup
+					SocketChannel com;
+					try {
+						while ((com = listener.accept()) != null) {
+							com.configureBlocking(false);
+							PrettyPrinter.prettyPrintln("[ @GInfo@0 ] - Connected client " + (com.getRemoteAddress().toString().substring(1)));
+							nextReactor(reactors, nextReactor++ & Integer.MAX_VALUE).register(com, binary);
 						}
-						buffer.flip();
-						executor.execute(new RequestHandler(selector, selectedKey, new String(buffer.array()).trim(), database, loginHandler, wordFactory, serverConfig));
-					} else if (selectedKey.isWritable())
-						RequestHandler.sendAttachment(selectedKey);
+					} catch (IOException e) {
+						PrettyPrinter.prettyPrintln("[ @RError@0 ] - Cannot accept connection: " + e.getMessage());
+					}
 				}
+				selector.selectedKeys().clear();
 			}
 			selector.close();
 			PrettyPrinter.prettyPrintln("[ @GInfo@0 ] - Selector closed");
@@ -0,0 +1,48 @@
+package Server;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Registry of the metrics exported by the server through the getMetrics endpoint.
+ * Components register gauges (values read on demand) or increment named counters.
+ */
+public class ServerMetrics {
+	private final ConcurrentSkipListMap<String, Supplier<Object>> gauges;
+	private final ConcurrentHashMap<String, AtomicLong> counters;
+
+	public ServerMetrics() {
+		this.gauges = new ConcurrentSkipListMap<>();
+		this.counters = new ConcurrentHashMap<>();
+	}
+
+	public void registerGauge(String name, Supplier<Object> gauge) {
+		gauges.put(name, gauge);
+	}
+
+	/**
+	 * @param name the name of the counter, it is created the first time it is used
+	 * @return the counter identified by name
+	 */
+	public AtomicLong counter(String name) {
+		return counters.computeIfAbsent(name, k -> {
+			AtomicLong counter = new AtomicLong(0);
+			gauges.put(k, counter::get);
+			return counter;
+		});
+	}
+
+	/**
+	 * @return the current value of every metric, ordered by name
+	 */
+	public Map<String, Object> snapshot() {
+		LinkedHashMap<String, Object> snapshot = new LinkedHashMap<>();
+		for (Map.Entry<String, Supplier<Object>> entry : gauges.entrySet())
+			snapshot.put(entry.getKey(), entry.getValue().get());
+		return snapshot;
+	}
+}
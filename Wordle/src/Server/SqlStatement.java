@@ -0,0 +1,55 @@
+package Server;
+
+/**
+ * The statements WordleSqliteDB executes. Every connection prepares a statement the first time it is used
+ * and keeps it, see SqliteConnection, so SQLite parses and plans each of them once per connection.
+ */
+public enum SqlStatement {
+	USER_EXISTS("SELECT COUNT(*) FROM users WHERE username = ?;"),
+	USER_CREDENTIALS("SELECT hashed_password, role FROM users WHERE username = ?"),
+	INSERT_USER("INSERT INTO users (username, hashed_password, role) VALUES (?,?,?)"),
+	COUNT_USERS("SELECT COUNT(*) FROM users;"),
+	ALL_USERNAMES("SELECT username FROM users;"),
+	USER_STREAKS("SELECT current_streak, longest_streak FROM users WHERE username = ?;"),
+	SET_CURRENT_STREAK("UPDATE users SET current_streak = ? WHERE username = ?;"),
+	SET_LONGEST_STREAK("UPDATE users SET longest_streak = ? WHERE username = ?;"),
+	RESET_USER_STREAK("UPDATE users SET current_streak = 0 WHERE username = ?;"),
+	// users that tried to guess the word but lost
+	RESET_STREAKS_LOST("UPDATE users SET current_streak = 0 WHERE username IN (SELECT username FROM games WHERE word = ? AND won = 0);"),
+	// users that haven't played the word
+	RESET_STREAKS_NOT_PLAYED("UPDATE users SET current_streak = 0 WHERE username NOT IN (SELECT username FROM games WHERE word = ?);"),
+	UPDATE_LAST_GAME("UPDATE users SET last_game_timestamp = (datetime('now')),  games_played = games_played + 1 WHERE username = ?"),
+
+	GAME_EXISTS("SELECT COUNT(*) FROM games WHERE username = ? AND word = ?;"),
+	GAME_WON("SELECT COUNT(*) FROM games WHERE username = ? AND word = ? AND won = 1;"),
+	GAME_CLOSED("SELECT closed FROM games WHERE username = ? AND word = ?;"),
+	GAME_PLAYING("SELECT COUNT(*) FROM games WHERE username = ? AND word = ? AND closed = 0;"),
+	// Two concurrent requests may both find no game, the unique index keeps only the first one
+	INSERT_GAME("INSERT OR IGNORE INTO games (username, word, guesses) VALUES (?,?,0)"),
+	CLOSE_GAME("UPDATE games SET closed = 1 WHERE username = ? AND word = ?;"),
+	WIN_GAME("UPDATE games SET won = 1, closed = 1 WHERE username = ? AND word = ?;"),
+	GAME_GUESSES("SELECT guesses, guesses_history, hints_history FROM games WHERE username = ? AND word = ?;"),
+	ADD_GUESS("UPDATE games SET guesses = guesses + 1, guesses_history = ?, hints_history = ? WHERE username = ? AND word = ?;"),
+	GUESSES_HISTORY("SELECT guesses_history FROM games WHERE username = ? AND word = (SELECT word from words_extracted WHERE ID = ?);"),
+	HINTS_HISTORY("SELECT hints_history FROM games WHERE username = ? AND word = (SELECT word from words_extracted WHERE ID = ?);"),
+	GUESSES_NUMBER("SELECT guesses FROM games WHERE username = ? AND word = (SELECT word FROM words_extracted WHERE ID = ?);"),
+	GAMES_PLAYED("SELECT COUNT(*) FROM games WHERE username = ?;"),
+	GAMES_WON("SELECT COUNT(*) FROM games WHERE username = ? AND won = 1;"),
+	GUESS_DISTRIBUTION("""
+			SELECT username, guesses, count(username) FROM games
+			WHERE won = 1 AND username = ?
+			GROUP BY username, guesses
+			ORDER BY guesses;
+			"""),
+
+	WORD_EXTRACTED("SELECT COUNT(*) FROM words_extracted WHERE word = ?;"),
+	INSERT_EXTRACTED_WORD("INSERT INTO words_extracted (word) VALUES (?)"),
+	WORD_BY_ID("SELECT word FROM words_extracted WHERE ID = ?;"),
+	WORD_ID("SELECT ID FROM words_extracted WHERE word = ?;");
+
+	public final String sql;
+
+	SqlStatement(String sql) {
+		this.sql = sql;
+	}
+}
@@ -0,0 +1,63 @@
+package Server;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A connection of the SqlitePool with its prepared statements: a statement is prepared the first time it is
+ * used and then reused by the next operations, which only bind their parameters.
+ * Not thread safe: the pool hands a connection to one thread at a time, under the lock of the writer or
+ * through the queue of the readers, which also publish the statements to the next thread.
+ * The statements are closed only with the connection, the callers close their ResultSets, otherwise the
+ * statement would keep a read transaction open.
+ */
+public class SqliteConnection implements AutoCloseable {
+	private final Connection connection;
+	private final EnumMap<SqlStatement, PreparedStatement> statements;
+	// Shared by the connections of a pool
+	private final AtomicLong hits;
+	private final AtomicLong misses;
+
+	public SqliteConnection(Connection connection, AtomicLong hits, AtomicLong misses) {
+		this.connection = connection;
+		this.statements = new EnumMap<>(SqlStatement.class);
+		this.hits = hits;
+		this.misses = misses;
+	}
+
+	/**
+	 * @return the prepared statement, with the parameters of its last execution still bound
+	 */
+	public PreparedStatement prepare(SqlStatement sql) throws SQLException {
+		PreparedStatement statement = statements.get(sql);
+		if (statement != null) {
+			hits.incrementAndGet();
+			return statement;
+		}
+		misses.incrementAndGet();
+		statement = connection.prepareStatement(sql.sql);
+		statements.put(sql, statement);
+		return statement;
+	}
+
+	/**
+	 * @return the underlying connection, for the statements executed only once such as the schema
+	 */
+	public Connection connection() {
+		return connection;
+	}
+
+	@Override
+	public void close() throws SQLException {
+		for (PreparedStatement statement : statements.values()) {
+			try {
+				statement.close();
+			} catch (SQLException ignored) {}
+		}
+		statements.clear();
+		connection.close();
+	}
+}
@@ -0,0 +1,181 @@
+package Server;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The connections to the SQLite database: a single writer, used by one thread at a time, and a few read-only
+ * readers, each one borrowed by a thread for the duration of an operation. The database is in WAL mode,
+ * where the readers see the last committed state and neither block the writer nor are blocked by it, so the
+ * rankings and the statistics are read in parallel with the guesses being written.
+ * With autoCommit off the writes stay in the open transaction of the writer until the next commit and the
+ * other connections would not see them, so there are no readers and every operation uses the writer.
+ * Every connection caches its prepared statements, the hits and the misses of the caches are counted together.
+ */
+public class SqlitePool {
+	/**
+	 * The tuning of the connections, see the sqlite* fields of ServerConfig
+	 * @param mmapSize the bytes of the database accessed through memory mapping, -1 to disable it
+	 */
+	public record Tuning(int readers, ServerConfig.SqliteSynchronous synchronous, int cacheSize, long mmapSize) {
+		public static Tuning defaults() {
+			return new Tuning(4, ServerConfig.SqliteSynchronous.NORMAL, 8192, 64L * 1024 * 1024);
+		}
+	}
+
+	/**
+	 * An operation on a connection of the pool that returns a result
+	 */
+	@FunctionalInterface
+	public interface Query<T> {
+		T run(SqliteConnection db) throws SQLException;
+	}
+
+	/**
+	 * An operation on the writer that returns nothing
+	 */
+	@FunctionalInterface
+	public interface Update {
+		void run(SqliteConnection db) throws SQLException;
+	}
+
+	private final SqliteConnection writer;
+	private final ReentrantLock writeLock;
+	// The idle readers, null if the reads use the writer
+	private final ArrayBlockingQueue<SqliteConnection> readers;
+	private final ArrayList<SqliteConnection> connections;
+	private final AtomicLong statementHits;
+	private final AtomicLong statementMisses;
+
+	public SqlitePool(String databasePath, boolean autoCommit, Tuning tuning) throws SQLException, ClassNotFoundException {
+		Class.forName("org.sqlite.JDBC");
+		String connectionUrl = "jdbc:sqlite:" + databasePath;
+		this.connections = new ArrayList<>();
+		this.writeLock = new ReentrantLock();
+		this.statementHits = new AtomicLong(0);
+		this.statementMisses = new AtomicLong(0);
+		try {
+			this.writer = open(connectionUrl);
+			// The journal mode is stored in the database file, it is set before any transaction is open
+			pragma(writer.connection(), "journal_mode = WAL");
+			tune(writer.connection(), tuning);
+			writer.connection().setAutoCommit(autoCommit);
+			if (autoCommit) {
+				this.readers = new ArrayBlockingQueue<>(tuning.readers());
+				for (int i = 0; i < tuning.readers(); i++) {
+					SqliteConnection reader = open(connectionUrl);
+					tune(reader.connection(), tuning);
+					pragma(reader.connection(), "query_only = ON");
+					readers.add(reader);
+				}
+			} else {
+				this.readers = null;
+			}
+		} catch (SQLException e) {
+			close();
+			throw e;
+		}
+	}
+
+	private SqliteConnection open(String connectionUrl) throws SQLException {
+		SqliteConnection connection = new SqliteConnection(DriverManager.getConnection(connectionUrl), statementHits, statementMisses);
+		connections.add(connection);
+		return connection;
+	}
+
+	private static void tune(Connection db, Tuning tuning) throws SQLException {
+		pragma(db, "synchronous = " + tuning.synchronous());
+		// A negative cache_size is in KiB rather than in pages
+		pragma(db, "cache_size = " + -tuning.cacheSize());
+		pragma(db, "mmap_size = " + Math.max(tuning.mmapSize(), 0));
+	}
+
+	private static void pragma(Connection db, String pragma) throws SQLException {
+		try (Statement statement = db.createStatement()) {
+			statement.execute("PRAGMA " + pragma + ";");
+		}
+	}
+
+	/**
+	 * Runs a read-only operation on an idle reader, waiting for one if they are all busy
+	 */
+	public <T> T read(Query<T> query) throws SQLException {
+		if (readers == null) return write(query);
+		SqliteConnection reader;
+		try {
+			reader = readers.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a connection", e);
+		}
+		try {
+			return query.run(reader);
+		} finally {
+			readers.add(reader);
+		}
+	}
+
+	/**
+	 * Runs an operation on the writer, the operations of the other threads on the writer wait for it to finish
+	 */
+	public <T> T write(Query<T> query) throws SQLException {
+		writeLock.lock();
+		try {
+			return query.run(writer);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * @see #write(Query)
+	 */
+	public void update(Update update) throws SQLException {
+		write(db -> {
+			update.run(db);
+			return null;
+		});
+	}
+
+	/**
+	 * Commits the transaction of the writer, used when autoCommit is off
+	 */
+	public void commit() throws SQLException {
+		update(db -> db.connection().commit());
+	}
+
+	/**
+	 * @return the executions of a statement already prepared by the connection
+	 */
+	public long statementHits() {
+		return statementHits.get();
+	}
+
+	/**
+	 * @return the statements prepared, at most one per SqlStatement and connection
+	 */
+	public long statementMisses() {
+		return statementMisses.get();
+	}
+
+	/**
+	 * Closes every connection, the writer last so that the WAL is checkpointed into the database
+	 */
+	public void close() throws SQLException {
+		SQLException failure = null;
+		for (int i = connections.size() - 1; i >= 0; i--) {
+			try {
+				connections.get(i).close();
+			} catch (SQLException e) {
+				failure = e;
+			}
+		}
+		if (failure != null) throw failure;
+	}
+}
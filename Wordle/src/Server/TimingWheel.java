@@ -0,0 +1,132 @@
+package Server;
+
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel: the timeouts are hashed by their deadline tick into a fixed number of buckets,
+ * each one a doubly linked list, so scheduling and cancelling are O(1) and advancing the wheel only
+ * visits the buckets of the ticks elapsed. A bucket also holds the timeouts due in later rounds of the
+ * wheel, they stay there until their tick comes. Deadlines are rounded up to the tick, so a timeout never
+ * expires early but can expire up to one tick late.
+ * Not thread safe: every reactor owns a wheel and uses it only from its own thread.
+ * @param <T> the type of the object a timeout refers to
+ */
+public class TimingWheel<T> {
+	/**
+	 * A scheduled timeout, it can be rescheduled or cancelled until it expires
+	 */
+	public static class Timeout<T> {
+		private final T owner;
+		private long deadlineTick;
+		private Timeout<T> previous, next;
+		private boolean scheduled;
+
+		private Timeout(T owner) {
+			this.owner = owner;
+		}
+
+		public T owner() {
+			return owner;
+		}
+	}
+
+	private final long tickMillis;
+	private final Timeout<T>[] buckets;
+	private final int mask;
+	// The last tick whose bucket has been visited
+	private long currentTick;
+	private int size;
+
+	/**
+	 * @param tickMillis the resolution of the wheel
+	 * @param wheelSize the number of buckets, rounded up to a power of two
+	 * @param now the current time in milliseconds
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public TimingWheel(long tickMillis, int wheelSize, long now) {
+		int buckets = Integer.highestOneBit(Math.max(wheelSize, 2) - 1) << 1;
+		this.tickMillis = Math.max(tickMillis, 1);
+		this.buckets = (Timeout<T>[]) new Timeout[buckets];
+		this.mask = buckets - 1;
+		this.currentTick = now / this.tickMillis;
+		this.size = 0;
+	}
+
+	/**
+	 * @param deadline the time in milliseconds at which the timeout expires
+	 * @return the timeout, to reschedule or cancel it
+	 */
+	public Timeout<T> schedule(T owner, long deadline) {
+		Timeout<T> timeout = new Timeout<>(owner);
+		add(timeout, deadline);
+		return timeout;
+	}
+
+	/**
+	 * Moves a timeout to a new deadline, it is scheduled again if it has already expired
+	 */
+	public void reschedule(Timeout<T> timeout, long deadline) {
+		cancel(timeout);
+		add(timeout, deadline);
+	}
+
+	/**
+	 * Removes a timeout from the wheel, nothing happens if it has already expired or has been cancelled
+	 */
+	public void cancel(Timeout<T> timeout) {
+		if (!timeout.scheduled) return;
+		int bucket = (int) (timeout.deadlineTick & mask);
+		if (timeout.previous != null) timeout.previous.next = timeout.next;
+		else buckets[bucket] = timeout.next;
+		if (timeout.next != null) timeout.next.previous = timeout.previous;
+		timeout.previous = timeout.next = null;
+		timeout.scheduled = false;
+		size--;
+	}
+
+	/**
+	 * Visits the buckets of the ticks elapsed since the last call and hands the expired timeouts to expired,
+	 * which may reschedule them. At most one round of the wheel is visited, however long the gap.
+	 * @param now the current time in milliseconds
+	 */
+	public void advance(long now, Consumer<Timeout<T>> expired) {
+		long targetTick = now / tickMillis;
+		if (targetTick <= currentTick) return;
+		ArrayList<Timeout<T>> due = new ArrayList<>();
+		long ticks = Math.min(targetTick - currentTick, buckets.length);
+		for (long tick = currentTick + 1; tick <= currentTick + ticks; tick++) {
+			Timeout<T> timeout = buckets[(int) (tick & mask)];
+			while (timeout != null) {
+				Timeout<T> next = timeout.next;
+				if (timeout.deadlineTick <= targetTick) {
+					cancel(timeout);
+					due.add(timeout);
+				}
+				timeout = next;
+			}
+		}
+		currentTick = targetTick;
+		// The callbacks run after the visit, so a timeout rescheduled into a bucket still to visit is not seen again
+		for (Timeout<T> timeout : due) expired.accept(timeout);
+	}
+
+	/**
+	 * @return the number of timeouts scheduled
+	 */
+	public int size() {
+		return size;
+	}
+
+	private void add(Timeout<T> timeout, long deadline) {
+		// Rounded up, and never in the past: the bucket of the current tick has already been visited
+		timeout.deadlineTick = Math.max((deadline + tickMillis - 1) / tickMillis, currentTick + 1);
+		int bucket = (int) (timeout.deadlineTick & mask);
+		timeout.previous = null;
+		timeout.next = buckets[bucket];
+		if (buckets[bucket] != null) buckets[bucket].previous = timeout;
+		buckets[bucket] = timeout;
+		timeout.scheduled = true;
+		size++;
+	}
+}
@@ -0,0 +1,15 @@
+package Server;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A backend able to translate the secret words in italian.
+ * Implementations must not block the caller: the translation is delivered through the future.
+ */
+public interface TranslationProvider {
+	/**
+	 * @param word the english word to translate
+	 * @return a future completed with the translation, or exceptionally if the backend failed
+	 */
+	CompletableFuture<String> translate(String word);
+}
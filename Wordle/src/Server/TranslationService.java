@@ -0,0 +1,125 @@
+package Server;
+
+import CommonUtils.PrettyPrinter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Translations of the secret words. Every word is translated once, when WordFactory extracts it, and the
+ * result is kept for the whole period of the word, so the guess responses only read the cache.
+ * Failures of the provider open a circuit breaker: after FAILURE_THRESHOLD consecutive failures no
+ * request is sent for OPEN_MILLIS, then a single attempt decides whether to close it again.
+ */
+public class TranslationService {
+	public static final String UNAVAILABLE = "-";
+	private static final int FAILURE_THRESHOLD = 3;
+	private static final long OPEN_MILLIS = 60000;
+	// The current word and the previous one, whose games can still be finished
+	private static final int CACHED_WORDS = 2;
+
+	private final TranslationProvider provider;
+	private final ConcurrentHashMap<String, CompletableFuture<String>> cache;
+	private final ConcurrentHashMap<String, Long> cachedAt;
+	private final AtomicInteger consecutiveFailures;
+	private final AtomicLong openUntil;
+	private final AtomicLong requests;
+	private final AtomicLong failures;
+	private final AtomicLong misses;
+
+	public TranslationService(TranslationProvider provider, ServerMetrics metrics) {
+		this.provider = provider;
+		this.cache = new ConcurrentHashMap<>();
+		this.cachedAt = new ConcurrentHashMap<>();
+		this.consecutiveFailures = new AtomicInteger(0);
+		this.openUntil = new AtomicLong(0);
+		this.requests = metrics.counter("translation.requests");
+		this.failures = metrics.counter("translation.failures");
+		this.misses = metrics.counter("translation.misses");
+		metrics.registerGauge("translation.circuitOpen", () -> System.currentTimeMillis() < openUntil.get());
+	}
+
+	/**
+	 * Builds the provider selected in the configuration
+	 * @throws IOException if the translation file cannot be read
+	 */
+	public static TranslationProvider providerOf(ServerConfig config) throws IOException {
+		return switch (config.translationProvider()) {
+			case MYMEMORY -> new MyMemoryTranslationProvider();
+			case FILE -> new FileTranslationProvider(config.translationFilePath());
+			case NONE -> new FileTranslationProvider(null);
+		};
+	}
+
+	/**
+	 * Starts the translation of a newly extracted word, without waiting for it.
+	 * The words extracted before the previous one are dropped from the cache.
+	 */
+	public void prefetch(String word) {
+		request(word);
+		if (cachedAt.size() > CACHED_WORDS) {
+			cachedAt.entrySet().stream()
+					.sorted(Map.Entry.comparingByValue())
+					.limit(cachedAt.size() - CACHED_WORDS)
+					.map(Map.Entry::getKey)
+					.toList()
+					.forEach(oldWord -> {
+						cachedAt.remove(oldWord);
+						cache.remove(oldWord);
+					});
+		}
+	}
+
+	/**
+	 * Never blocks: if the translation is not available yet, or it failed, UNAVAILABLE is returned
+	 * and a failed translation is requested again, circuit breaker permitting.
+	 * @return the translation of word or UNAVAILABLE
+	 */
+	public String translationOf(String word) {
+		CompletableFuture<String> translation = cache.get(word);
+		if (translation == null || translation.isCompletedExceptionally()) translation = request(word);
+		if (translation.isDone() && !translation.isCompletedExceptionally()) return translation.join();
+		misses.incrementAndGet();
+		return UNAVAILABLE;
+	}
+
+	private CompletableFuture<String> request(String word) {
+		CompletableFuture<String> current = cache.get(word);
+		if (current != null && !current.isCompletedExceptionally()) return current;
+		if (System.currentTimeMillis() < openUntil.get()) return CompletableFuture.failedFuture(new IllegalStateException("Circuit open"));
+
+		CompletableFuture<String> translation = new CompletableFuture<>();
+		// Only one thread sends the request for the same word
+		if (current == null ? cache.putIfAbsent(word, translation) != null : !cache.replace(word, current, translation)) {
+			CompletableFuture<String> other = cache.get(word);
+			return other != null ? other : CompletableFuture.failedFuture(new IllegalStateException("Evicted"));
+		}
+		cachedAt.putIfAbsent(word, System.nanoTime());
+		requests.incrementAndGet();
+		CompletableFuture<String> sent;
+		try {
+			sent = provider.translate(word);
+		} catch (RuntimeException e) {
+			sent = CompletableFuture.failedFuture(e);
+		}
+		sent.whenComplete((result, error) -> {
+			if (error == null && result != null) {
+				consecutiveFailures.set(0);
+				translation.complete(result);
+				return;
+			}
+			failures.incrementAndGet();
+			if (consecutiveFailures.incrementAndGet() >= FAILURE_THRESHOLD) {
+				openUntil.set(System.currentTimeMillis() + OPEN_MILLIS);
+				consecutiveFailures.set(FAILURE_THRESHOLD - 1); // one more failure after the pause opens it again
+				PrettyPrinter.prettyPrintln("[ @YWarning@0 ] - Translation service unavailable, retrying in " + OPEN_MILLIS / 1000 + " seconds");
+			}
+			translation.completeExceptionally(error != null ? error : new IllegalStateException("Empty translation"));
+		});
+		return translation;
+	}
+}
@@ -0,0 +1,112 @@
+package Server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * The parts of the WebSocket protocol (RFC 6455) needed to push messages to the web clients:
+ * the opening handshake, the encoding of unfragmented server frames and the parsing of the
+ * client frames, which are always masked. Like HttpRequestParser, frames are parsed in place
+ * on the read buffer of the connection.
+ */
+public class WebSocketFrames {
+	public static final int CONTINUATION = 0x0, TEXT = 0x1, BINARY = 0x2, CLOSE = 0x8, PING = 0x9, PONG = 0xA;
+	private static final String GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+	// Control frames carry at most 125 bytes of payload
+	private static final int MAX_CONTROL_PAYLOAD = 125;
+
+	/**
+	 * A frame sent by the client, already unmasked
+	 * @param length the number of bytes the frame occupied in the read buffer
+	 */
+	public record Frame(int opcode, byte[] payload, int length) {}
+
+	/**
+	 * @return the 101 response accepting the upgrade requested with webSocketKey
+	 */
+	public static ByteBuffer handshake(String webSocketKey) {
+		String accept;
+		try {
+			MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+			accept = Base64.getEncoder().encodeToString(sha1.digest((webSocketKey + GUID).getBytes(StandardCharsets.US_ASCII)));
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-1
+			throw new IllegalStateException(e);
+		}
+		return ByteBuffer.wrap(("HTTP/1.1 101 Switching Protocols\r\n" +
+				"Upgrade: websocket\r\n" +
+				"Connection: Upgrade\r\n" +
+				"Sec-WebSocket-Accept: " + accept + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * @return a read-only text frame, it can be queued on several connections with duplicate
+	 */
+	public static ByteBuffer text(byte[] payload) {
+		return frame(TEXT, payload).asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return a control frame, e.g. the pong answering a ping or the close echoing the one of the client
+	 */
+	public static ByteBuffer control(int opcode, byte[] payload) {
+		return frame(opcode, payload.length > MAX_CONTROL_PAYLOAD ? new byte[0] : payload);
+	}
+
+	/**
+	 * @return a close frame with the status code, e.g. 1008 when the session of the client has ended
+	 */
+	public static ByteBuffer close(int statusCode) {
+		return control(CLOSE, new byte[]{(byte) (statusCode >>> 8), (byte) statusCode});
+	}
+
+	private static ByteBuffer frame(int opcode, byte[] payload) {
+		int headerLength = payload.length < 126 ? 2 : payload.length < 65536 ? 4 : 10;
+		ByteBuffer frame = ByteBuffer.allocate(headerLength + payload.length);
+		// FIN set, no extensions
+		frame.put((byte) (0x80 | opcode));
+		if (payload.length < 126) frame.put((byte) payload.length);
+		else if (payload.length < 65536) frame.put((byte) 126).putShort((short) payload.length);
+		else frame.put((byte) 127).putLong(payload.length);
+		return frame.put(payload).flip();
+	}
+
+	/**
+	 * Parses the frame that begins at offset from
+	 * @param buffer the read buffer, its position and limit are not modified
+	 * @param from the offset of the first byte of the frame
+	 * @param to the offset after the last byte read
+	 * @param maxSize the maximum size of a frame
+	 * @return the parsed frame or null if the bytes between from and to are not a complete frame
+	 * @throws ConnectionState.RequestTooLargeException if the frame declares more than maxSize bytes
+	 */
+	public static Frame parse(ByteBuffer buffer, int from, int to, int maxSize) throws ConnectionState.RequestTooLargeException {
+		if (to - from < 2) return null;
+		int opcode = buffer.get(from) & 0x0F;
+		boolean masked = (buffer.get(from + 1) & 0x80) != 0;
+		long payloadLength = buffer.get(from + 1) & 0x7F;
+		int position = from + 2;
+		if (payloadLength == 126) {
+			if (to - position < 2) return null;
+			payloadLength = buffer.getShort(position) & 0xFFFF;
+			position += 2;
+		} else if (payloadLength == 127) {
+			if (to - position < 8) return null;
+			payloadLength = buffer.getLong(position);
+			position += 8;
+		}
+		if (payloadLength < 0 || payloadLength + (position - from) + 4 > maxSize) throw new ConnectionState.RequestTooLargeException(maxSize);
+		int maskStart = position;
+		if (masked) position += 4;
+		if (position + payloadLength > to) return null;
+		byte[] payload = new byte[(int) payloadLength];
+		for (int i = 0; i < payload.length; i++) {
+			byte b = buffer.get(position + i);
+			payload[i] = masked ? (byte) (b ^ buffer.get(maskStart + (i & 3))) : b;
+		}
+		return new Frame(opcode, payload, position + payload.length - from);
+	}
+}
@@ -11,6 +11,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class WordFactory implements Runnable{
+	// The positions of the ranking whose changes are notified to the clients
+	public static final int RANKING_TOP = 3;
 	private final ReentrantReadWriteLock currentWordLock;
 	private final ReentrantReadWriteLock wordChangedTimestampLock;
 	private long wordChangedTimestamp;
@@ -20,9 +22,11 @@ public class WordFactory implements Runnable{
 	private String currentWord;
 	private final WordleDB database;
 	private final RankingChanged rankingService;
+	private final TranslationService translations;
+	private final EventBroadcaster events;
 	private LinkedList<String> ranking;
 	
-	public WordFactory(long newWordTimeout, List<String> words, WordleDB database, RankingChanged rankingService) {
+	public WordFactory(long newWordTimeout, List<String> words, WordleDB database, RankingChanged rankingService, TranslationService translations, EventBroadcaster events) {
 		this.newWordTimeout = newWordTimeout;
 		this.wordChangedTimestamp = 0;
 		this.isRunning = new AtomicBoolean(true);
@@ -31,6 +35,8 @@ public class WordFactory implements Runnable{
 		this.currentWordLock = new ReentrantReadWriteLock();
 		this.wordChangedTimestampLock = new ReentrantReadWriteLock();
 		this.rankingService = rankingService;
+		this.translations = translations;
+		this.events = events;
 		this.ranking = database.getRanking();
 	}
 	public void setIsRunning(boolean isRunning) {
@@ -72,6 +78,10 @@ public class WordFactory implements Runnable{
 	}
 
 
+	private static List<String> top(List<String> ranking) {
+		return ranking == null ? List.of() : List.copyOf(ranking.subList(0, Math.min(ranking.size(), RANKING_TOP)));
+	}
+
 	@Override
 	public void run() {
 		PrettyPrinter.prettyPrintln("[ @GInfo@0 ] - GameFactory ready");
@@ -95,7 +105,10 @@ public class WordFactory implements Runnable{
 				wordChangedTimestampLock.writeLock().unlock();
 
 				database.insertExtractedWord(currentWord);
+				// Translated now, so that the guess responses never wait for it
+				translations.prefetch(wordCandidate);
 				PrettyPrinter.prettyPrintln(String.format("[ @MNew Word@0 ] - Extracted new word: @C%s@0", wordCandidate));
+				events.publishWord(getTimeUntilNewWord());
 				if(firstWord) {
 					firstWord = false;
 					continue;
@@ -105,16 +118,14 @@ public class WordFactory implements Runnable{
 
 			// If the top 3 changed, then notify the clients
 			LinkedList<String> newRanking = database.getRanking();
-			try {
-				for (int i = 0; i < ranking.size() && i < 3; i++) {
-					if (!ranking.get(i).equals(newRanking.get(i))) {
-						rankingService.notifyRanking();
-						ranking = newRanking;
-						break;
-					}
+			if (newRanking != null && !top(ranking).equals(top(newRanking))) {
+				ranking = newRanking;
+				events.publishRanking(top(newRanking));
+				try {
+					rankingService.notifyRanking();
+				} catch (RemoteException e) {
+					PrettyPrinter.prettyPrintln("[ @RError@0 ] - Cannot notify ranking!");
 				}
-			} catch (RemoteException e) {
-				PrettyPrinter.prettyPrintln("[ @RError@0 ] - Cannot notify ranking!");
 			}
 
 			try {
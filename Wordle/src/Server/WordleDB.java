@@ -3,8 +3,6 @@ package Server;
 import CommonUtils.PrettyPrinter;
 
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
@@ -28,10 +26,17 @@ public class WordleDB {
 	private final boolean autoCommitDatabase;
 	private final DatabaseType databaseType;
 	private WordleJsonDB jsonDatabase;
-	private Connection db;
+	private SqlitePool pool;
 	private Thread commitRoutine;
 
 	public WordleDB(String databasePath, boolean autoCreateDatabase, boolean autoCommit, DatabaseType type) {
+		this(databasePath, autoCreateDatabase, autoCommit, type, SqlitePool.Tuning.defaults());
+	}
+
+	/**
+	 * @param tuning the connections to open to the database and their settings, used only by the SQLITE type
+	 */
+	public WordleDB(String databasePath, boolean autoCreateDatabase, boolean autoCommit, DatabaseType type, SqlitePool.Tuning tuning) {
 		this.databasePath = databasePath;
 		this.databaseType = type;
 		this.autoCreateDatabase = autoCreateDatabase;
@@ -40,10 +45,8 @@ public class WordleDB {
 			switch (type) {
 				case JSON -> jsonDatabase = new WordleJsonDB(databasePath, autoCreateDatabase, autoCommit);
 				case SQLITE -> {
-					Class.forName("org.sqlite.JDBC");
-					String connectionUrl = "jdbc:sqlite:" + databasePath;
-					db = DriverManager.getConnection(connectionUrl);
-					db.setAutoCommit(autoCommit);
+					WordleSqliteDB.createDatabaseFile(databasePath, autoCreateDatabase);
+					pool = new SqlitePool(databasePath, autoCommit, tuning);
 				}
 			}
 			// this routine saves the state of the server on the storage when the autoCommit flag is set to false
@@ -58,7 +61,7 @@ public class WordleDB {
 								jsonDatabase.writeUsersToDisk();
 								jsonDatabase.writeWordsToDisk();
 							}
-							case SQLITE -> db.commit();
+							case SQLITE -> pool.commit();
 						}
 						PrettyPrinter.prettyPrintln("[ @GInfo@0 ] - Transactions committed at " + simpleDateFormat.format(new Timestamp(System.currentTimeMillis())));
 					} catch (InterruptedException ignored) {
@@ -70,7 +73,7 @@ public class WordleDB {
 					}
 				}
 			});
-		} catch (SQLException | ClassNotFoundException e) {
+		} catch (IOException | SQLException | ClassNotFoundException e) {
 			PrettyPrinter.prettyPrintln("[ @RDatabase exception@0 ] - " + e.getMessage());
 			System.exit(1);
 		}
@@ -94,12 +97,12 @@ public class WordleDB {
 							jsonDatabase.writeUsersToDisk();
 							jsonDatabase.writeWordsToDisk();
 						}
-						case SQLITE -> db.commit();
+						case SQLITE -> pool.commit();
 
 					}
 					PrettyPrinter.prettyPrintln("[ @GInfo@0 ] - Transactions committed before exiting");
 				}
-				if (databaseType == DatabaseType.SQLITE) db.close();
+				if (databaseType == DatabaseType.SQLITE) pool.close();
 			} catch (Exception e) {
 			PrettyPrinter.prettyPrintln("[ @RDatabase exception@0 ] - " + e.getMessage());
 			System.exit(1);
@@ -107,13 +110,26 @@ public class WordleDB {
 	}
 
 
+	/**
+	 * Exports the hits and the misses of the prepared statement caches of the SQLite connections
+	 */
+	public void registerMetrics(ServerMetrics metrics) {
+		if (databaseType != DatabaseType.SQLITE) return;
+		metrics.registerGauge("sqlite.statements.hits", pool::statementHits);
+		metrics.registerGauge("sqlite.statements.misses", pool::statementMisses);
+	}
+
 	/**
 	 * This method initiates the database
 	 */
 	public void checkDatabase() {
 		try {
 			switch (databaseType) {
-				case SQLITE -> WordleSqliteDB.checkDatabase(db, databasePath, autoCreateDatabase);
+				case SQLITE -> {
+					pool.update(WordleSqliteDB::checkDatabase);
+					// Otherwise the tables would be visible to the other connections only after the first commit
+					if (!autoCommitDatabase) pool.commit();
+				}
 				case JSON -> jsonDatabase.checkDatabase();
 			}
 		} catch (Exception e) {
@@ -132,7 +148,7 @@ public class WordleDB {
 		boolean result = false;
 		try {
 			switch (databaseType) {
-				case SQLITE -> result =  WordleSqliteDB.isPlaying(db, username, currentWord);
+				case SQLITE -> result = pool.read(db -> WordleSqliteDB.isPlaying(db, username, currentWord));
 				case JSON -> result = jsonDatabase.isPlaying(username, currentWord);
 			}
 		} catch (Exception e) {
@@ -153,7 +169,7 @@ public class WordleDB {
 		int result = -1;
 		try {
 			switch (databaseType) {
-				case SQLITE -> result = WordleSqliteDB.getWordId(db, word);
+				case SQLITE -> result = pool.read(db -> WordleSqliteDB.getWordId(db, word));
 				case JSON -> result = jsonDatabase.getWordId(word);
 			}
 		} catch (Exception e) {
@@ -174,7 +190,7 @@ public class WordleDB {
 		int result = -1;
 		try {
 			switch (databaseType) {
-				case SQLITE -> result =  WordleSqliteDB.getGuessesNumber(db, username, wordId);
+				case SQLITE -> result = pool.read(db -> WordleSqliteDB.getGuessesNumber(db, username, wordId));
 				case JSON -> result = jsonDatabase.getGuessesNumber(username, wordId);
 			}
 		}  catch (Exception e) {
@@ -193,7 +209,7 @@ public class WordleDB {
 		HashMap<String, Object> result = new HashMap<>();
 		try {
 			switch (databaseType) {
-				case SQLITE -> result = WordleSqliteDB.getUserStatistics(db, username);
+				case SQLITE -> result = pool.read(db -> WordleSqliteDB.getUserStatistics(db, username));
 				case JSON -> result = jsonDatabase.getUserStatistics(username);
 			}
 		} catch (Exception e) {
@@ -213,7 +229,7 @@ public class WordleDB {
 		String result = "";
 		try {
 			switch (databaseType) {
-				case SQLITE -> result = WordleSqliteDB.getHintsHistory(db, username, wordId);
+				case SQLITE -> result = pool.read(db -> WordleSqliteDB.getHintsHistory(db, username, wordId));
 				case JSON -> result = jsonDatabase.getHintsHistory(username, wordId);
 			}
 		} catch (Exception e) {
@@ -233,7 +249,7 @@ public class WordleDB {
 		String result = "";
 		try {
 			switch (databaseType) {
-				case SQLITE -> result = WordleSqliteDB.getGuessesHistory(db, username, wordId);
+				case SQLITE -> result = pool.read(db -> WordleSqliteDB.getGuessesHistory(db, username, wordId));
 				case JSON -> result = jsonDatabase.getGuessesHistory(username, wordId);
 			}
 		} catch (Exception e) {
@@ -253,7 +269,7 @@ public class WordleDB {
 	public void incrementGameGuesses(String username, String word, String guess, String hint) {
 		try {
 			switch (databaseType) {
-				case SQLITE -> WordleSqliteDB.incrementGameGuesses(db, username, word, guess, hint);
+				case SQLITE -> pool.update(db -> WordleSqliteDB.incrementGameGuesses(db, username, word, guess, hint));
 				case JSON -> jsonDatabase.incrementGameGuesses(username, word, guess, hint);
 			}
 		} catch (Exception e) {
@@ -270,7 +286,7 @@ public class WordleDB {
 	public void setUserVictory(String username, String word) {
 		try {
 			switch (databaseType) {
-				case SQLITE -> WordleSqliteDB.setUserVictory(db, username, word);
+				case SQLITE -> pool.update(db -> WordleSqliteDB.setUserVictory(db, username, word));
 				case JSON -> jsonDatabase.setUserVictory(username, word);
 			}
 		} catch (Exception e) {
@@ -286,7 +302,7 @@ public class WordleDB {
 	public void resetUserStreaks(String username) {
 		try {
 			switch (databaseType) {
-				case SQLITE -> WordleSqliteDB.resetUserStreaks(db, username);
+				case SQLITE -> pool.update(db -> WordleSqliteDB.resetUserStreaks(db, username));
 				case JSON -> jsonDatabase.resetUserStreaks(username);
 			}
 		} catch (Exception e) {
@@ -302,7 +318,7 @@ public class WordleDB {
 	public void resetStreaks(String word) {
 		try {
 			switch (databaseType) {
-				case SQLITE -> WordleSqliteDB.resetStreaks(db, word);
+				case SQLITE -> pool.update(db -> WordleSqliteDB.resetStreaks(db, word));
 				case JSON -> jsonDatabase.resetStreaks(word);
 			}
 		} catch (Exception e) {
@@ -319,7 +335,7 @@ public class WordleDB {
 		boolean result = false;
 		try {
 			switch (databaseType) {
-				case SQLITE -> result = WordleSqliteDB.insertExtractedWord(db, word);
+				case SQLITE -> result = pool.write(db -> WordleSqliteDB.insertExtractedWord(db, word));
 				case JSON -> result = jsonDatabase.insertExtractedWord(word);
 			}
 		} catch (Exception e) {
@@ -338,7 +354,7 @@ public class WordleDB {
 		boolean result = false;
 		try {
 			switch (databaseType) {
-				case SQLITE -> result = WordleSqliteDB.insertGame(db, username, word);
+				case SQLITE -> result = pool.write(db -> WordleSqliteDB.insertGame(db, username, word));
 				case JSON -> result = jsonDatabase.insertGame(username, word);
 			}
 		}  catch (Exception e) {
@@ -359,7 +375,11 @@ public class WordleDB {
 		boolean result = false;
 		try {
 			switch (databaseType) {
-				case SQLITE -> result = WordleSqliteDB.insertUser(db, username, password, role);
+				case SQLITE -> {
+					// Hashed before taking the writer, so the other writes do not wait for the digest
+					String hashedPassword = password.isBlank() ? "" : PasswordHasher.hash(password);
+					result = pool.write(db -> WordleSqliteDB.insertUser(db, username, hashedPassword, role));
+				}
 				case JSON -> result = jsonDatabase.insertUser(username, password, role);
 			}
 		} catch (Exception e) {
@@ -379,7 +399,7 @@ public class WordleDB {
 		boolean result = false;
 		try {
 			switch (databaseType) {
-				case SQLITE -> result = WordleSqliteDB.isGameWon(db, username, word);
+				case SQLITE -> result = pool.read(db -> WordleSqliteDB.isGameWon(db, username, word));
 				case JSON -> result = jsonDatabase.isGameWon(username, word);
 			}
 		} catch (Exception e) {
@@ -397,7 +417,7 @@ public class WordleDB {
 	public void closeGame(String username, String word) {
 		try {
 			switch (databaseType) {
-				case SQLITE -> WordleSqliteDB.closeGame(db, username, word);
+				case SQLITE -> pool.update(db -> WordleSqliteDB.closeGame(db, username, word));
 				case JSON -> jsonDatabase.closeGame(username, word);
 			}
 		} catch (Exception e) {
@@ -416,7 +436,7 @@ public class WordleDB {
 		boolean result = false;
 		try {
 			switch (databaseType) {
-				case SQLITE -> result = WordleSqliteDB.isGameClosed(db, username, word);
+				case SQLITE -> result = pool.read(db -> WordleSqliteDB.isGameClosed(db, username, word));
 				case JSON -> result = jsonDatabase.isGameClosed(username, word);
 			}
 		} catch (Exception e) {
@@ -436,7 +456,7 @@ public class WordleDB {
 		boolean result = false;
 		try {
 			switch (databaseType) {
-				case SQLITE -> result = WordleSqliteDB.gameExists(db, username, word);
+				case SQLITE -> result = pool.read(db -> WordleSqliteDB.gameExists(db, username, word));
 				case JSON -> result = jsonDatabase.gameExists(username, word);
 			}
 		} catch (Exception e) {
@@ -455,7 +475,7 @@ public class WordleDB {
 		boolean result = false;
 		try {
 			switch (databaseType) {
-				case SQLITE -> result = WordleSqliteDB.wordAlreadyExtracted(db, word);
+				case SQLITE -> result = pool.read(db -> WordleSqliteDB.wordAlreadyExtracted(db, word));
 				case JSON -> result = jsonDatabase.wordAlreadyExtracted(word);
 			}
 		} catch (Exception e) {
@@ -473,7 +493,7 @@ public class WordleDB {
 		boolean result = false;
 		try {
 			switch (databaseType) {
-				case SQLITE -> result = WordleSqliteDB.userExists(db, username);
+				case SQLITE -> result = pool.read(db -> WordleSqliteDB.userExists(db, username));
 				case JSON -> result = jsonDatabase.userExists(username);
 			}
 		} catch (Exception e) {
@@ -487,7 +507,11 @@ public class WordleDB {
 		Authorization result = Authorization.NOT_AUTHORIZED;
 		try {
 			switch (databaseType) {
-				case SQLITE -> result = WordleSqliteDB.validateUser(db, username, password);
+				case SQLITE -> {
+					// Verified once the connection is back in the pool, with autoCommit off it is the writer
+					WordleSqliteDB.Credentials credentials = pool.read(db -> WordleSqliteDB.userCredentials(db, username));
+					result = WordleSqliteDB.validateUser(credentials, password);
+				}
 				case JSON -> result = jsonDatabase.validateUser(username, password);
 			}
 		} catch (Exception e) {
@@ -506,7 +530,7 @@ public class WordleDB {
 		String result = "";
 		try {
 			switch (databaseType) {
-				case SQLITE -> result = WordleSqliteDB.getWord(db, wordId);
+				case SQLITE -> result = pool.read(db -> WordleSqliteDB.getWord(db, wordId));
 				case JSON -> result = jsonDatabase.getWord(wordId);
 			}
 		} catch (Exception e) {
@@ -524,7 +548,7 @@ public class WordleDB {
 		LinkedList<String> result = null;
 		try {
 			switch (databaseType) {
-				case SQLITE -> result = WordleSqliteDB.getRanking(db);
+				case SQLITE -> result = pool.read(db -> WordleSqliteDB.getRanking(db));
 				case JSON -> result = jsonDatabase.getRanking();
 			}
 		} catch (Exception e) {
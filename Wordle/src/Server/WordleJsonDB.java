@@ -8,10 +8,7 @@ import com.fasterxml.jackson.databind.module.SimpleModule;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
 import java.sql.*;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -40,18 +37,6 @@ public class WordleJsonDB {
 		this.wordsFileLock = new ReentrantLock();
 	}
 
-	private String bytesToHex(byte[] hash) {
-		StringBuilder hexString = new StringBuilder(2 * hash.length);
-		for (byte b : hash) {
-			String hex = Integer.toHexString(0xff & b);
-			if (hex.length() == 1) {
-				hexString.append('0');
-			}
-			hexString.append(hex);
-		}
-		return hexString.toString();
-	}
-
 	public void writeUsersToDisk() throws IOException {
 		ObjectMapper mapper = new ObjectMapper();
 		mapper.enable(SerializationFeature.INDENT_OUTPUT);
@@ -85,18 +70,14 @@ public class WordleJsonDB {
 		}
 	}
 
-	public WordleDB.Authorization validateUser(String username, String password) throws NoSuchAlgorithmException {
+	public WordleDB.Authorization validateUser(String username, String password) {
 		if (!userExists(username)) return WordleDB.Authorization.NOT_AUTHORIZED;
-		String hashedPasswd, salt, role;
-		MessageDigest digest;
+		String hashedPasswd, role;
 		WordleDB.Authorization authLevel = WordleDB.Authorization.NOT_AUTHORIZED;
 		UserModel user = userTable.get(username);
-		digest = MessageDigest.getInstance("SHA-256");
 		hashedPasswd = user.getHashedPassword();
 		role = user.getRole();
-		salt = hashedPasswd.split(":")[0];
-		hashedPasswd = hashedPasswd.split(":")[1];
-		if(hashedPasswd.equals(bytesToHex(digest.digest((salt + password).getBytes(StandardCharsets.UTF_8))))) {
+		if(PasswordHasher.verify(hashedPasswd, password)) {
 			switch (role){
 				case "admin" -> authLevel = WordleDB.Authorization.AUTHORIZED_ADMIN;
 				case "user" -> authLevel = WordleDB.Authorization.AUTHORIZED_USER;
@@ -121,15 +102,9 @@ public class WordleJsonDB {
 		return gamesTable.get(key).isWon();
 	}
 
-	public boolean insertUser(String username, String password, String role) throws IOException, NoSuchAlgorithmException {
+	public boolean insertUser(String username, String password, String role) throws IOException {
 		if (username.isBlank() || password.isBlank() || role.isBlank()) return false;
-		MessageDigest digest = null;
-		byte[] hash;
-		SecureRandom random = new SecureRandom();
-		String salt = String.valueOf((int) (random.nextDouble()*100000));
-		String hashedPassword = "";
-		digest = MessageDigest.getInstance("SHA-256");
-		hashedPassword = salt + ":" + bytesToHex(digest.digest((salt + password).getBytes(StandardCharsets.UTF_8)));
+		String hashedPassword = PasswordHasher.hash(password);
 		if (userTable.putIfAbsent(username , new UserModel(
 				userTable.size() + 1,
 				username,
@@ -1,106 +1,129 @@
 package Server;
 
 import CommonUtils.Pair;
+import CommonUtils.PrettyPrinter;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
 import java.sql.*;
 import java.util.*;
 
 public class WordleSqliteDB {
-	private static String bytesToHex(byte[] hash) {
-		StringBuilder hexString = new StringBuilder(2 * hash.length);
-		for (byte b : hash) {
-			String hex = Integer.toHexString(0xff & b);
-			if (hex.length() == 1) {
-				hexString.append('0');
-			}
-			hexString.append(hex);
-		}
-		return hexString.toString();
+	/**
+	 * A change to the schema
+	 * @param duplicates for each table, a query counting the rows that a unique index of the migration would
+	 * reject: the migration is not applied while any of them is found, the operator decides which rows to keep
+	 * @param statements the statements applying the change, in a single transaction
+	 */
+	private record Migration(Map<String, String> duplicates, String... statements) {}
+
+	/**
+	 * The changes to the schema created by checkDatabase, in order: the database stores in PRAGMA user_version
+	 * how many of them it has applied, so a file created by an older version is upgraded when it is opened.
+	 * Never edit a migration already released, append a new one.
+	 */
+	private static final Migration[] MIGRATIONS = {
+			// 1: the lookups by username and word used to scan the whole tables, and nothing prevented duplicates
+			new Migration(Map.of(
+					"users", duplicates("users", "username"),
+					"games", duplicates("games", "username", "word"),
+					"words_extracted", duplicates("words_extracted", "word")),
+					"CREATE UNIQUE INDEX IF NOT EXISTS users_username ON users (username);",
+					"CREATE UNIQUE INDEX IF NOT EXISTS games_username_word ON games (username, word);",
+					// resetStreaks selects the players of a word and whether they won
+					"CREATE INDEX IF NOT EXISTS games_word_won ON games (word, won);",
+					"CREATE UNIQUE INDEX IF NOT EXISTS words_extracted_word ON words_extracted (word);")
+	};
+
+	/**
+	 * @return a query counting the rows of table beyond the first one with the same columns, which a unique index
+	 * on them would reject. Rows with a NULL column are not counted, the index accepts them.
+	 */
+	private static String duplicates(String table, String... columns) {
+		String key = String.join(", ", columns);
+		String notNull = String.join(" IS NOT NULL AND ", columns) + " IS NOT NULL";
+		return "SELECT COALESCE(SUM(copies - 1), 0) FROM (SELECT COUNT(*) AS copies FROM " + table + " WHERE " + notNull
+				+ " GROUP BY " + key + " HAVING copies > 1);";
 	}
 
-	public static WordleDB.Authorization validateUser(Connection db, String username, String password) throws NoSuchAlgorithmException, SQLException {
-		if (!userExists(db, username)) return  WordleDB.Authorization.NOT_AUTHORIZED;
+	/**
+	 * The password hash and the role stored for a user
+	 */
+	public record Credentials(String hashedPassword, String role) {}
+
+	/**
+	 * @return the credentials of the user, null if the user does not exist
+	 */
+	public static Credentials userCredentials(SqliteConnection db, String username) throws SQLException {
 		PreparedStatement statement = null;
 		ResultSet resultSet = null;
-		String hashedPasswd, salt, role;
-		MessageDigest digest;
-		WordleDB.Authorization authLevel =  WordleDB.Authorization.NOT_AUTHORIZED;
 		try {
-			digest = MessageDigest.getInstance("SHA-256");
-			String query = "SELECT hashed_password, role FROM users WHERE username = ?";
-			statement = db.prepareStatement(query);
+			statement = db.prepare(SqlStatement.USER_CREDENTIALS);
 			statement.setString(1, username);
 			resultSet = statement.executeQuery();
-			resultSet.next();
-			hashedPasswd = resultSet.getString(1);
-			role = resultSet.getString(2);
-			salt = hashedPasswd.split(":")[0];
-			hashedPasswd = hashedPasswd.split(":")[1];
-			if(hashedPasswd.equals(bytesToHex(digest.digest((salt + password).getBytes(StandardCharsets.UTF_8))))) {
-				switch (role){
-					case "admin" -> authLevel =  WordleDB.Authorization.AUTHORIZED_ADMIN;
-					case "user" -> authLevel =  WordleDB.Authorization.AUTHORIZED_USER;
-				}
-			}
+			if (!resultSet.next()) return null;
+			return new Credentials(resultSet.getString(1), resultSet.getString(2));
 		} finally {
 			try {
-				if (statement != null) statement.close();
 				if (resultSet != null) resultSet.close();
 			} catch (Exception ignored) {}
 		}
+	}
+
+	/**
+	 * Verifies the password against the credentials read by userCredentials, without holding a connection
+	 * of the pool during the digest
+	 */
+	public static WordleDB.Authorization validateUser(Credentials credentials, String password) {
+		WordleDB.Authorization authLevel =  WordleDB.Authorization.NOT_AUTHORIZED;
+		if (credentials != null && PasswordHasher.verify(credentials.hashedPassword(), password)) {
+			switch (credentials.role()){
+				case "admin" -> authLevel =  WordleDB.Authorization.AUTHORIZED_ADMIN;
+				case "user" -> authLevel =  WordleDB.Authorization.AUTHORIZED_USER;
+			}
+		}
 		return authLevel;
 	}
 
-	public static boolean userExists(Connection db, String username) throws SQLException {
+	public static boolean userExists(SqliteConnection db, String username) throws SQLException {
 		PreparedStatement statement = null;
 		ResultSet resultSet = null;
 		try {
-			String query = "SELECT COUNT(*) FROM users WHERE username = ?;";
-			statement = db.prepareStatement(query);
+			statement = db.prepare(SqlStatement.USER_EXISTS);
 			statement.setString(1, username);
 			resultSet = statement.executeQuery();
 			resultSet.next();
 			if (resultSet.getInt(1) == 0) return false;
 		} finally {
 			try {
-				if (statement != null) statement.close();
 				if (resultSet != null) resultSet.close();
 			} catch (Exception ignored) {}
 		}
 		return true;
 	}
 
-	public static boolean wordAlreadyExtracted(Connection db, String word) throws SQLException {
+	public static boolean wordAlreadyExtracted(SqliteConnection db, String word) throws SQLException {
 		PreparedStatement statement = null;
 		ResultSet resultSet = null;
 		try {
-			String query = "SELECT COUNT(*) FROM words_extracted WHERE word = ?;";
-			statement = db.prepareStatement(query);
+			statement = db.prepare(SqlStatement.WORD_EXTRACTED);
 			statement.setString(1, word);
 			resultSet = statement.executeQuery();
 			resultSet.next();
 			if (resultSet.getInt(1) == 0) return false;
 		} finally {
 			try {
-				if (statement != null) statement.close();
 				if (resultSet != null) resultSet.close();
 			} catch (Exception ignored) {}
 		}
 		return true;
 	}
 
-	public static boolean gameExists(Connection db, String username, String word) throws SQLException {
+	public static boolean gameExists(SqliteConnection db, String username, String word) throws SQLException {
 		PreparedStatement statement = null;
 		ResultSet resultSet = null;
 		try {
-			String query = "SELECT COUNT(*) FROM games WHERE username = ? AND word = ?;";
-			statement = db.prepareStatement(query);
+			statement = db.prepare(SqlStatement.GAME_EXISTS);
 			statement.setString(1, username);
 			statement.setString(2, word);
 			resultSet = statement.executeQuery();
@@ -108,19 +131,17 @@ public class WordleSqliteDB {
 			if (resultSet.getInt(1) == 0) return false;
 		} finally {
 			try {
-				if (statement != null) statement.close();
 				if (resultSet != null) resultSet.close();
 			} catch (Exception ignored) {}
 		}
 		return true;
 	}
 
-	public static boolean isGameWon(Connection db, String username, String word) throws SQLException {
+	public static boolean isGameWon(SqliteConnection db, String username, String word) throws SQLException {
 		PreparedStatement statement = null;
 		ResultSet resultSet = null;
 		try {
-			String query = "SELECT COUNT(*) FROM games WHERE username = ? AND word = ? AND won = 1;";
-			statement = db.prepareStatement(query);
+			statement = db.prepare(SqlStatement.GAME_WON);
 			statement.setString(1, username);
 			statement.setString(2, word);
 			resultSet = statement.executeQuery();
@@ -128,177 +149,121 @@ public class WordleSqliteDB {
 			if (resultSet.getInt(1) == 0) return false;
 		} finally {
 			try {
-				if (statement != null) statement.close();
 				if (resultSet != null) resultSet.close();
 			} catch (Exception ignored) {}
 		}
 		return true;
 	}
 
-	public static boolean insertUser(Connection db, String username, String password, String role) throws SQLException, NoSuchAlgorithmException {
-		if (username.isBlank() || password.isBlank() || role.isBlank()) return false;
+	/**
+	 * @param hashedPassword the password already hashed with PasswordHasher, outside of the writer
+	 */
+	public static boolean insertUser(SqliteConnection db, String username, String hashedPassword, String role) throws SQLException {
+		if (username.isBlank() || hashedPassword.isBlank() || role.isBlank()) return false;
 		if (userExists(db, username)) return false;
-		PreparedStatement statement = null;
-		MessageDigest digest = null;
-		byte[] hash;
-		SecureRandom random = new SecureRandom();
-		String salt = String.valueOf((int) (random.nextDouble()*100000));
-		try {
-			digest = MessageDigest.getInstance("SHA-256");
-			String query = "INSERT INTO users (username, hashed_password, role) VALUES (?,?,?)";
-			statement = db.prepareStatement(query);
-			statement.setString(1, username);
-			statement.setString(2, salt + ":" + bytesToHex(digest.digest((salt + password).getBytes(StandardCharsets.UTF_8))));
-			statement.setString(3, role);
-			statement.executeUpdate();
-			statement.close();
-		} finally {
-			try {
-				if (statement != null) statement.close();
-			} catch (Exception ignored) {}
-		}
+		PreparedStatement statement = db.prepare(SqlStatement.INSERT_USER);
+		statement.setString(1, username);
+		statement.setString(2, hashedPassword);
+		statement.setString(3, role);
+		statement.executeUpdate();
 		return true;
 	}
 
-	public static boolean insertGame(Connection db, String username, String word) throws SQLException {
-		PreparedStatement statement = null;
-		try {
-			String query = "INSERT INTO games (username, word, guesses) VALUES (?,?,0)";
-			statement = db.prepareStatement(query);
-			statement.setString(1, username);
-			statement.setString(2, word);
-			statement.executeUpdate();
-			statement.close();
-			query = "UPDATE users SET last_game_timestamp = (datetime('now')),  games_played = games_played + 1 WHERE username = ?";
-			statement = db.prepareStatement(query);
-			statement.setString(1, username);
-			statement.executeUpdate();
-		} finally {
-			try {
-				if (statement != null) statement.close();
-			} catch (Exception ignored) {}
-		}
+	public static boolean insertGame(SqliteConnection db, String username, String word) throws SQLException {
+		PreparedStatement statement = db.prepare(SqlStatement.INSERT_GAME);
+		statement.setString(1, username);
+		statement.setString(2, word);
+		if (statement.executeUpdate() == 0) return false;
+		statement = db.prepare(SqlStatement.UPDATE_LAST_GAME);
+		statement.setString(1, username);
+		statement.executeUpdate();
 		return true;
 	}
 
 
-	public static boolean resetStreaks(Connection db, String word) throws SQLException {
+	public static boolean resetStreaks(SqliteConnection db, String word) throws SQLException {
 		PreparedStatement statement = null;
-		try {
-			// users that tried to guess {word} but lost
-			String query = "UPDATE users SET current_streak = 0 WHERE username IN (SELECT username FROM games WHERE word = ? AND won = 0);";
-			statement = db.prepareStatement(query);
-			statement.setString(1, word);
-			statement.executeUpdate();
-			// users that haven't played {word}
-			query = "UPDATE users SET current_streak = 0 WHERE username NOT IN (SELECT username FROM games WHERE word = ?);";
-			statement = db.prepareStatement(query);
-			statement.setString(1, word);
-			statement.executeUpdate();
-		} finally {
-			try {
-				if (statement != null) statement.close();
-			} catch (Exception ignored) {}
-		}
+		// users that tried to guess {word} but lost
+		statement = db.prepare(SqlStatement.RESET_STREAKS_LOST);
+		statement.setString(1, word);
+		statement.executeUpdate();
+		// users that haven't played {word}
+		statement = db.prepare(SqlStatement.RESET_STREAKS_NOT_PLAYED);
+		statement.setString(1, word);
+		statement.executeUpdate();
 		return true;
 	}
-	public static boolean resetUserStreaks(Connection db, String username) throws SQLException {
-		PreparedStatement statement = null;
-		try {
-			String query = "UPDATE users SET current_streak = 0 WHERE username = ?;";
-			statement = db.prepareStatement(query);
-			statement.setString(1, username);
-			statement.executeUpdate();
-		} finally {
-			try {
-				if (statement != null) statement.close();
-			} catch (Exception ignored) {}
-		}
+	public static boolean resetUserStreaks(SqliteConnection db, String username) throws SQLException {
+		PreparedStatement statement = db.prepare(SqlStatement.RESET_USER_STREAK);
+		statement.setString(1, username);
+		statement.executeUpdate();
 		return true;
 	}
 
-	public static boolean isGameClosed(Connection db, String username, String word) throws SQLException {
+	public static boolean isGameClosed(SqliteConnection db, String username, String word) throws SQLException {
 		PreparedStatement statement = null;
 		ResultSet resultSet = null;
 		boolean result;
 		try {
-			String query = "SELECT closed FROM games WHERE username = ? AND word = ?;";
-			statement = db.prepareStatement(query);
+			statement = db.prepare(SqlStatement.GAME_CLOSED);
 			statement.setString(1, username);
 			statement.setString(2, word);
 			resultSet = statement.executeQuery();
 			result = resultSet.getInt(1) == 1;
 		} finally {
 			try {
-				if (statement != null) statement.close();
 				if (resultSet != null) resultSet.close();
 			} catch (Exception ignored) {}
 		}
 		return result;
 	}
 
-	public static void closeGame(Connection db, String username, String word) throws SQLException {
-		PreparedStatement statement = null;
-		try {
-			String query = "UPDATE games SET closed = 1 WHERE username = ? AND word = ?;";
-			statement = db.prepareStatement(query);
-			statement.setString(1, username);
-			statement.setString(2, word);
-			statement.executeUpdate();
-		} finally {
-			try {
-				if (statement != null) statement.close();
-			} catch (Exception ignored) {}
-		}
+	public static void closeGame(SqliteConnection db, String username, String word) throws SQLException {
+		PreparedStatement statement = db.prepare(SqlStatement.CLOSE_GAME);
+		statement.setString(1, username);
+		statement.setString(2, word);
+		statement.executeUpdate();
 	}
 
-	public static void setUserVictory(Connection db, String username, String word) throws SQLException {
+	public static void setUserVictory(SqliteConnection db, String username, String word) throws SQLException {
 		PreparedStatement statement = null;
 		ResultSet resultSet = null;
 		int currentStreak, longestStreak;
 		try {
-			String query = "UPDATE games SET won = 1, closed = 1 WHERE username = ? AND word = ?;";
-			statement = db.prepareStatement(query);
+			statement = db.prepare(SqlStatement.WIN_GAME);
 			statement.setString(1, username);
 			statement.setString(2, word);
 			statement.executeUpdate();
-			statement.close();
-			query = "SELECT current_streak, longest_streak FROM users WHERE username = ?";
-			statement = db.prepareStatement(query);
+			statement = db.prepare(SqlStatement.USER_STREAKS);
 			statement.setString(1, username);
 			resultSet = statement.executeQuery();
 			currentStreak = resultSet.getInt(1) + 1;
 			longestStreak = resultSet.getInt(2);
-			query = "UPDATE users SET current_streak = ? WHERE username = ?;";
-			statement = db.prepareStatement(query);
+			resultSet.close();
+			statement = db.prepare(SqlStatement.SET_CURRENT_STREAK);
 			statement.setInt(1, currentStreak);
 			statement.setString(2, username);
 			statement.executeUpdate();
-			statement.close();
 			if (currentStreak > longestStreak) {
-				query = "UPDATE users SET longest_streak = ? WHERE username = ?;";
-				statement = db.prepareStatement(query);
+				statement = db.prepare(SqlStatement.SET_LONGEST_STREAK);
 				statement.setInt(1, currentStreak);
 				statement.setString(2, username);
 				statement.executeUpdate();
-				statement.close();
 			}
 		} finally {
 			try {
-				if (statement != null) statement.close();
 				if (resultSet != null) resultSet.close();
 			} catch (Exception ignored) {}
 		}
 	}
 
-	public static void incrementGameGuesses(Connection db, String username, String word, String guess, String hint) throws SQLException {
+	public static void incrementGameGuesses(SqliteConnection db, String username, String word, String guess, String hint) throws SQLException {
 		PreparedStatement statement = null;
 		ResultSet resultSet = null;
 		int currentGuesses;
 		String guessesHistory, hintsHistory;
 		try {
-			String query = "SELECT guesses, guesses_history, hints_history FROM games WHERE username = ? AND word = ?;";
-			statement = db.prepareStatement(query);
+			statement = db.prepare(SqlStatement.GAME_GUESSES);
 			statement.setString(1, username);
 			statement.setString(2, word);
 			resultSet = statement.executeQuery();
@@ -306,14 +271,13 @@ public class WordleSqliteDB {
 				currentGuesses = resultSet.getInt(1);
 				guessesHistory = resultSet.getString(2);
 				hintsHistory = resultSet.getString(3);
-				statement.close();
+				resultSet.close();
 				if (currentGuesses == 12) return;
 				if (guessesHistory == null || guessesHistory.equals("")) guessesHistory = guess;
 				else guessesHistory += String.format(":%s", guess);
 				if (hintsHistory == null || hintsHistory.equals("")) hintsHistory = hint;
 				else hintsHistory += String.format(":%s", hint);
-				query = "UPDATE games SET guesses = guesses + 1, guesses_history = ?, hints_history = ? WHERE username = ? AND word = ?;";
-				statement = db.prepareStatement(query);
+				statement = db.prepare(SqlStatement.ADD_GUESS);
 				statement.setString(1, guessesHistory);
 				statement.setString(2, hintsHistory);
 				statement.setString(3, username);
@@ -322,19 +286,17 @@ public class WordleSqliteDB {
 			}
 		} finally {
 			try {
-				if (statement != null) statement.close();
 				if (resultSet != null) resultSet.close();
 			} catch (Exception ignored) {}
 		}
 	}
 
-	public static String getGuessesHistory(Connection db, String username, int wordId) throws SQLException {
+	public static String getGuessesHistory(SqliteConnection db, String username, int wordId) throws SQLException {
 		PreparedStatement statement = null;
 		ResultSet resultSet = null;
 		String guesses = "";
 		try {
-			String query = "SELECT guesses_history FROM games WHERE username = ? AND word = (SELECT word from words_extracted WHERE ID = ?);";
-			statement = db.prepareStatement(query);
+			statement = db.prepare(SqlStatement.GUESSES_HISTORY);
 			statement.setString(1, username);
 			statement.setInt(2, wordId);
 			resultSet = statement.executeQuery();
@@ -342,23 +304,20 @@ public class WordleSqliteDB {
 				guesses = resultSet.getString(1);
 				guesses = guesses == null ? "" : guesses;
 			}
-			statement.close();
 			resultSet.close();
 		} finally {
 			try {
-				if (statement != null) statement.close();
 				if (resultSet != null) resultSet.close();
 			} catch (Exception ignored) {}
 		}
 		return guesses;
 	}
-	public static String getHintsHistory(Connection db, String username, int wordId) throws SQLException {
+	public static String getHintsHistory(SqliteConnection db, String username, int wordId) throws SQLException {
 		PreparedStatement statement = null;
 		ResultSet resultSet = null;
 		String hints = "";
 		try {
-			String query = "SELECT hints_history FROM games WHERE username = ? AND word = (SELECT word from words_extracted WHERE ID = ?);";
-			statement = db.prepareStatement(query);
+			statement = db.prepare(SqlStatement.HINTS_HISTORY);
 			statement.setString(1, username);
 			statement.setInt(2, wordId);
 			resultSet = statement.executeQuery();
@@ -366,18 +325,16 @@ public class WordleSqliteDB {
 				hints = resultSet.getString(1);
 				hints = hints == null ? "" : hints;
 			}
-			statement.close();
 			resultSet.close();
 		} finally {
 			try {
-				if (statement != null) statement.close();
 				if (resultSet != null) resultSet.close();
 			} catch (Exception ignored) {}
 		}
 		return hints;
 	}
 
-	public static HashMap<String, Object> getUserStatistics(Connection db, String username) throws SQLException {
+	public static HashMap<String, Object> getUserStatistics(SqliteConnection db, String username) throws SQLException {
 		int gamesPlayed = 0, lastStreak = 0, maxStreak = 0, gamesWon = 0;
 		double gamesWonPct = 0.0;
 		int[] guessDistribution = new int[12];
@@ -385,45 +342,33 @@ public class WordleSqliteDB {
 		ResultSet resultSet = null;
 		HashMap<String, Object> result = new HashMap<>();
 		try {
-			String query = "SELECT COUNT(*) FROM games WHERE username = ?;";
-			statement = db.prepareStatement(query);
+			statement = db.prepare(SqlStatement.GAMES_PLAYED);
 			statement.setString(1, username);
 			resultSet = statement.executeQuery();
 			if (resultSet.next()) {
 				gamesPlayed = resultSet.getInt(1);
 			}
-			statement.close();
 			resultSet.close();
 
-			query = "SELECT current_streak, longest_streak FROM users WHERE username = ?;";
-			statement = db.prepareStatement(query);
+			statement = db.prepare(SqlStatement.USER_STREAKS);
 			statement.setString(1, username);
 			resultSet = statement.executeQuery();
 			if (resultSet.next()) {
 				lastStreak = resultSet.getInt(1);
 				maxStreak = resultSet.getInt(2);
 			}
-			statement.close();
 			resultSet.close();
 
-			query = "SELECT COUNT(*) FROM games WHERE username = ? AND won = 1;";
-			statement = db.prepareStatement(query);
+			statement = db.prepare(SqlStatement.GAMES_WON);
 			statement.setString(1, username);
 			resultSet = statement.executeQuery();
 			if (resultSet.next()) {
 				gamesWon = resultSet.getInt(1);
 				gamesWonPct = gamesPlayed != 0 ? (double) gamesWon/gamesPlayed : 0;
 			}
-			statement.close();
 			resultSet.close();
 
-			query = """
-					SELECT username, guesses, count(username) FROM games
-					WHERE won = 1 AND username = ?
-					GROUP BY username, guesses
-					ORDER BY guesses;
-					""";
-			statement = db.prepareStatement(query);
+			statement = db.prepare(SqlStatement.GUESS_DISTRIBUTION);
 			statement.setString(1, username);
 			resultSet = statement.executeQuery();
 
@@ -432,7 +377,6 @@ public class WordleSqliteDB {
 
 		} finally {
 			try {
-				if (statement != null) statement.close();
 				if (resultSet != null) resultSet.close();
 			} catch (Exception ignored) {}
 		}
@@ -445,13 +389,12 @@ public class WordleSqliteDB {
 		return result;
 	}
 
-	public static int getGuessesNumber(Connection db, String username, int wordId) throws SQLException {
+	public static int getGuessesNumber(SqliteConnection db, String username, int wordId) throws SQLException {
 		PreparedStatement statement = null;
 		ResultSet resultSet = null;
 		int currentGuesses = -1;
 		try {
-			String query = "SELECT guesses FROM games WHERE username = ? AND word = (SELECT word FROM words_extracted WHERE ID = ?);";
-			statement = db.prepareStatement(query);
+			statement = db.prepare(SqlStatement.GUESSES_NUMBER);
 			statement.setString(1, username);
 			statement.setInt(2, wordId);
 			resultSet = statement.executeQuery();
@@ -460,80 +403,65 @@ public class WordleSqliteDB {
 			} else { return currentGuesses; }
 		} finally {
 			try {
-				if (statement != null) statement.close();
 				if (resultSet != null) resultSet.close();
 			} catch (Exception ignored) {}
 		}
 		return currentGuesses;
 	}
 
-	public static boolean insertExtractedWord(Connection db, String word) throws SQLException {
+	public static boolean insertExtractedWord(SqliteConnection db, String word) throws SQLException {
 		if (wordAlreadyExtracted(db, word)) return false;
-		PreparedStatement statement = null;
-		try {
-			String query = "INSERT INTO words_extracted (word) VALUES (?)";
-			statement = db.prepareStatement(query);
-			statement.setString(1, word);
-			statement.executeUpdate();
-		} finally {
-			try {
-				if (statement != null) statement.close();
-			} catch (Exception ignored) {}
-		}
+		PreparedStatement statement = db.prepare(SqlStatement.INSERT_EXTRACTED_WORD);
+		statement.setString(1, word);
+		statement.executeUpdate();
 		return true;
 	}
 
-	public static String getWord(Connection db, int wordId) throws SQLException {
+	public static String getWord(SqliteConnection db, int wordId) throws SQLException {
 		PreparedStatement statement = null;
 		ResultSet resultSet = null;
 		String word = "";
 		try {
-			String query = "SELECT word FROM words_extracted WHERE ID = ?;";
-			statement = db.prepareStatement(query);
+			statement = db.prepare(SqlStatement.WORD_BY_ID);
 			statement.setInt(1, wordId);
 			resultSet = statement.executeQuery();
 			if (resultSet.next()) word = resultSet.getString(1);
 		} finally {
 			try {
-				if (statement != null) statement.close();
 				if (resultSet != null) resultSet.close();
 			} catch (Exception ignored) {}
 		}
 		return word;
 	}
 
-	public static int getWordId(Connection db, String word) throws SQLException {
+	public static int getWordId(SqliteConnection db, String word) throws SQLException {
 		PreparedStatement statement = null;
 		ResultSet resultSet = null;
 		int ID = -1;
 		try {
-			String query = "SELECT ID FROM words_extracted WHERE word = ?;";
-			statement = db.prepareStatement(query);
+			statement = db.prepare(SqlStatement.WORD_ID);
 			statement.setString(1, word);
 			resultSet = statement.executeQuery();
 			if (resultSet.next()) ID = resultSet.getInt(1);
 		} finally {
 			try {
-				if (statement != null) statement.close();
 				if (resultSet != null) resultSet.close();
 			} catch (Exception ignored) {}
 		}
 		return ID;
 	}
-	public static boolean isPlaying(Connection db, String username, String currentWord) throws SQLException {
+	public static boolean isPlaying(SqliteConnection db, String username, String currentWord) throws SQLException {
 		PreparedStatement statement = null;
 		ResultSet resultSet = null;
 		boolean userIsPlaying = false;
 		try {
-			String query = "SELECT COUNT(*) FROM games WHERE username = ? AND word = ? AND closed = 0;";
-			statement = db.prepareStatement(query);
+			statement = db.prepare(SqlStatement.GAME_PLAYING);
 			statement.setString(1, username);
 			statement.setString(2, currentWord);
 			resultSet = statement.executeQuery();
 			if (resultSet.next()) userIsPlaying = resultSet.getInt(1) != 0;
 		} finally {
 			try {
-				if (statement != null) statement.close();
 				if (resultSet != null) resultSet.close();
 			} catch (Exception ignored) {}
 		}
@@ -552,23 +480,19 @@ public class WordleSqliteDB {
 		sum += (12 + 1) * (numPlayed - numGuessed);
 		return ((double) sum / (double) numPlayed);
 	}
-	public static LinkedList<String> getRanking(Connection db) throws SQLException {
+	public static LinkedList<String> getRanking(SqliteConnection db) throws SQLException {
 		PreparedStatement statement = null;
 		ResultSet resultSet = null;
 		LinkedList<String> users = new LinkedList<>();
 		LinkedList<Pair<String, Double>> ranking = new LinkedList<>();
 		int correctionFactor = 0;
 		try {
-			String query = """
-					SELECT username FROM users;
-					""";
-			statement = db.prepareStatement(query);
+			statement = db.prepare(SqlStatement.ALL_USERNAMES);
 			resultSet = statement.executeQuery();
 			while (resultSet.next()) {
 				users.add(resultSet.getString(1));
 			}
 
-			statement.close();
 			resultSet.close();
 			for (String user: users) {
 				HashMap<String, Object> userStatistics = WordleSqliteDB.getUserStatistics(db, user);
@@ -580,16 +504,16 @@ public class WordleSqliteDB {
 			ranking.sort((p1, p2) -> (int) (p1.b() - p2.b()));
 		} finally {
 			try {
-				if (statement != null) statement.close();
 				if (resultSet != null) resultSet.close();
 			} catch (Exception ignored) {}
 		}
 		return new LinkedList<>(ranking.stream().limit(10).map(Pair::a).toList());
 	}
 
-	public static void checkDatabase(Connection db, String path, boolean autoCreateDatabase) throws IOException, SQLException, NoSuchAlgorithmException, ClassNotFoundException {
-		PreparedStatement statement = null;
-		ResultSet resultSet = null;
+	/**
+	 * Creates the database file and its directories if they do not exist, before the connections are opened
+	 */
+	public static void createDatabaseFile(String path, boolean autoCreateDatabase) throws IOException {
 		if (autoCreateDatabase) {
 			File dbFile = new File(path);
 			if(!(dbFile.exists() && dbFile.isFile())){
@@ -599,10 +523,18 @@ public class WordleSqliteDB {
 				}
 			}
 		}
+	}
+
+	/**
+	 * Creates the tables that do not exist, and the admin user if there are no users, on the writer connection,
+	 * then applies the migrations
+	 */
+	public static void checkDatabase(SqliteConnection db) throws SQLException {
+		PreparedStatement statement = null;
+		ResultSet resultSet = null;
+		// The schema is created once, so its statements are not cached by the connection
+		Connection connection = db.connection();
 		try {
-			Class.forName("org.sqlite.JDBC");
-			String connectionUrl = "jdbc:sqlite:" + path;
-			db = DriverManager.getConnection(connectionUrl);
 			String query = """
 					CREATE TABLE IF NOT EXISTS
 						users ( ID INTEGER PRIMARY KEY AUTOINCREMENT,
@@ -616,20 +548,15 @@ public class WordleSqliteDB {
 								longest_streak INTEGER DEFAULT 0
 								);
 					""";
-			statement = db.prepareStatement(query);
+			statement = connection.prepareStatement(query);
 			statement.executeUpdate();
 			statement.close();
-			query = """
-					SELECT COUNT(*) FROM users;
-					""";
-			statement = db.prepareStatement(query);
-			resultSet = statement.executeQuery();
+			resultSet = db.prepare(SqlStatement.COUNT_USERS).executeQuery();
 			resultSet.next();
 			int totalUsers = resultSet.getInt(1);
 			resultSet.close();
-			statement.close();
 			if (totalUsers == 0)
-				insertUser(db, "admin", "changeme", "admin");
+				insertUser(db, "admin", PasswordHasher.hash("changeme"), "admin");
 
 			query = """
 					CREATE TABLE IF NOT EXISTS
@@ -644,8 +571,9 @@ public class WordleSqliteDB {
 											closed INTEGER NOT NULL DEFAULT 0
 											);
 					""";
-			statement = db.prepareStatement(query);
+			statement = connection.prepareStatement(query);
 			statement.executeUpdate();
+			statement.close();
 			query = """
 					CREATE TABLE IF NOT EXISTS
 								words_extracted ( ID INTEGER PRIMARY KEY AUTOINCREMENT,
@@ -653,7 +581,7 @@ public class WordleSqliteDB {
 											date datetime DEFAULT (datetime('now'))
 											);
 					""";
-			statement = db.prepareStatement(query);
+			statement = connection.prepareStatement(query);
 			statement.executeUpdate();
 		} finally {
 			try {
@@ -662,5 +590,51 @@ public class WordleSqliteDB {
 
 			} catch (Exception ignored) {}
 		}
+		migrate(connection);
+	}
+
+	/**
+	 * Applies the migrations the database does not have yet, each one in its own transaction together with the
+	 * update of user_version, so an interrupted upgrade starts again from the last migration completed
+	 */
+	/**
+	 * @throws SQLException naming the tables with duplicates, if the migration would have to drop rows to be applied
+	 */
+	private static void checkDuplicates(Statement statement, Migration migration, int version) throws SQLException {
+		StringJoiner found = new StringJoiner(", ");
+		for (Map.Entry<String, String> table : new TreeMap<>(migration.duplicates()).entrySet()) {
+			try (ResultSet resultSet = statement.executeQuery(table.getValue())) {
+				long rows = resultSet.next() ? resultSet.getLong(1) : 0;
+				if (rows > 0) found.add(rows + " duplicate rows in " + table.getKey());
+			}
+		}
+		if (found.length() > 0)
+			throw new SQLException("Cannot upgrade the database schema to version " + version + ": " + found
+					+ ". Remove them, keeping one row for each key, and restart the server");
+	}
+
+	private static void migrate(Connection db) throws SQLException {
+		int version;
+		try (Statement statement = db.createStatement(); ResultSet resultSet = statement.executeQuery("PRAGMA user_version;")) {
+			version = resultSet.next() ? resultSet.getInt(1) : 0;
+		}
+		if (version >= MIGRATIONS.length) return;
+		boolean autoCommit = db.getAutoCommit();
+		db.setAutoCommit(false);
+		try (Statement statement = db.createStatement()) {
+			for (int i = version; i < MIGRATIONS.length; i++) {
+				checkDuplicates(statement, MIGRATIONS[i], i + 1);
+				for (String migration : MIGRATIONS[i].statements()) statement.execute(migration);
+				// PRAGMA does not accept parameters
+				statement.execute("PRAGMA user_version = " + (i + 1) + ";");
+				db.commit();
+				PrettyPrinter.prettyPrintln("[ @GInfo@0 ] - Database schema upgraded to version " + (i + 1));
+			}
+		} catch (SQLException e) {
+			db.rollback();
+			throw e;
+		} finally {
+			db.setAutoCommit(autoCommit);
+		}
 	}
 }
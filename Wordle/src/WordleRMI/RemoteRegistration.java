@@ -1,21 +1,36 @@
 package WordleRMI;
 
 import CommonUtils.PrettyPrinter;
+import Server.CredentialsExecutor;
 import Server.WordleDB;
 
 import java.rmi.RemoteException;
 import java.rmi.server.RemoteServer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 
 public class RemoteRegistration extends RemoteServer implements RemoteRegistrationInterface{
 	private final WordleDB database;
-	public RemoteRegistration(WordleDB database) throws RemoteException {
+	private final CredentialsExecutor credentials;
+	public RemoteRegistration(WordleDB database, CredentialsExecutor credentials) throws RemoteException {
 		super();
 		this.database = database;
+		this.credentials = credentials;
 	}
 	@Override
 	public boolean registration(String user, String password) {
 		if (user.isBlank() || password.isBlank()) return false;
-		boolean registrationResult = database.insertUser(user, password, "user");
+		boolean registrationResult;
+		try {
+			// The password is hashed on the CredentialsExecutor, as for the registrations over TCP
+			registrationResult = credentials.call(() -> database.insertUser(user, password, "user"));
+		} catch (RejectedExecutionException | ExecutionException e) {
+			PrettyPrinter.prettyPrintln(String.format("[ @RRMI REGISTRATION@0 ] - %s failed: %s", user, e.getMessage()));
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
 		PrettyPrinter.prettyPrintln(String.format("[ @CRMI REGISTRATION@0 ] - %s", user));
 		return registrationResult;
 	}